@@ -0,0 +1,35 @@
+package com.google.sps;
+
+import static com.google.sps.Constants.DELETE_BATCH_SIZE;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.common.io.CharStreams;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/* Helpers shared by the portfolio benchmarks */
+final class BenchmarkComments {
+  private BenchmarkComments() {}
+
+  /* Stores numComments comments with timestamps 0 through numComments - 1 */
+  static void seed(DatastoreService datastore, int numComments) {
+    List<Entity> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+    for (int i = 0; i < numComments; i++) {
+      batch.add(CommentEntity.create("Bob", "Benchmark comment " + i, i).toEntity());
+      if (batch.size() == DELETE_BATCH_SIZE) {
+        datastore.put(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      datastore.put(batch);
+    }
+  }
+
+  /* A response writer that discards output, so only the servlet's own work is measured */
+  static PrintWriter nullWriter() {
+    return new PrintWriter(CharStreams.nullWriter());
+  }
+}
@@ -0,0 +1,136 @@
+package com.google.sps;
+
+import static com.google.appengine.api.datastore.FetchOptions.Builder.withChunkSize;
+import static com.google.sps.Constants.COMMENT_ENTITY_NAME;
+import static com.google.sps.Constants.COMMENT_TIMESTAMP_ID;
+import static com.google.sps.Constants.DELETE_BATCH_SIZE;
+import static com.google.sps.Constants.REQUEST_COMMENT_PARAM;
+import static com.google.sps.Constants.REQUEST_NAME_PARAM;
+import static com.google.sps.Constants.REQUEST_NUM_COMMENTS_PARAM;
+import static com.google.sps.Constants.REQUEST_PAGE_SIZE_PARAM;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Query.FilterPredicate;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.apphosting.api.ApiProxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* Measures comment listing and posting through DataServlet against the local Datastore stub */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DataServletBenchmark {
+  @Param({"10", "1000", "100000"})
+  private int numComments;
+
+  @Param({"10", "100"})
+  private int pageSize;
+
+  private final LocalServiceTestHelper datastoreConfiguration =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+  private ApiProxy.Environment environment;
+  private DatastoreService datastore;
+  private DataServlet dataServlet;
+  private HttpServletRequest listingRequest;
+  private HttpServletRequest pageRequest;
+  private HttpServletRequest postRequest;
+  private HttpServletResponse response;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    datastoreConfiguration.setUp();
+    environment = ApiProxy.getCurrentEnvironment();
+    datastore = DatastoreServiceFactory.getDatastoreService();
+    BenchmarkComments.seed(datastore, numComments);
+    CommentCache.getInstance().invalidate();
+    dataServlet = new DataServlet();
+    dataServlet.init();
+
+    listingRequest = mock(HttpServletRequest.class);
+    when(listingRequest.getParameter(REQUEST_NUM_COMMENTS_PARAM)).thenReturn(String.valueOf(pageSize));
+    pageRequest = mock(HttpServletRequest.class);
+    when(pageRequest.getParameter(REQUEST_PAGE_SIZE_PARAM)).thenReturn(String.valueOf(pageSize));
+    postRequest = mock(HttpServletRequest.class);
+    when(postRequest.getParameter(REQUEST_NAME_PARAM)).thenReturn("Alice");
+    when(postRequest.getParameter(REQUEST_COMMENT_PARAM)).thenReturn("Benchmark post");
+    response = mock(HttpServletResponse.class);
+    when(response.getWriter()).thenReturn(BenchmarkComments.nullWriter());
+  }
+
+  /* JMH may run iterations on a different thread than the trial setup */
+  @Setup(Level.Iteration)
+  public void attachEnvironment() {
+    ApiProxy.setEnvironmentForCurrentThread(environment);
+  }
+
+  /* Removes comments posted during the iteration so every iteration sees numComments comments */
+  @TearDown(Level.Iteration)
+  public void removePostedComments() {
+    Query posted = new Query(COMMENT_ENTITY_NAME).setKeysOnly().setFilter(
+        new FilterPredicate(COMMENT_TIMESTAMP_ID, FilterOperator.GREATER_THAN_OR_EQUAL, numComments));
+    List<Key> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+    for (Entity entity : datastore.prepare(posted).asIterable(withChunkSize(DELETE_BATCH_SIZE))) {
+      batch.add(entity.getKey());
+      if (batch.size() == DELETE_BATCH_SIZE) {
+        datastore.delete(batch);
+        batch.clear();
+      }
+    }
+    datastore.delete(batch);
+    CommentCache.getInstance().invalidate();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    datastoreConfiguration.tearDown();
+  }
+
+  @Benchmark
+  public void doGetListingCached() throws Exception {
+    dataServlet.doGet(listingRequest, response);
+  }
+
+  @Benchmark
+  public void doGetListingUncached() throws Exception {
+    CommentCache.getInstance().invalidate();
+    dataServlet.doGet(listingRequest, response);
+  }
+
+  @Benchmark
+  public void doGetFirstPage() throws Exception {
+    dataServlet.doGet(pageRequest, response);
+  }
+
+  @Benchmark
+  public void doPost() throws Exception {
+    dataServlet.doPost(postRequest, response);
+  }
+}
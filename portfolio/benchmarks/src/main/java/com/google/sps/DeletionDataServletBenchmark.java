@@ -0,0 +1,81 @@
+package com.google.sps;
+
+import static com.google.sps.Constants.REQUEST_ASYNC_PARAM;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.apphosting.api.ApiProxy;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Measures deleting every comment through DeletionDataServlet. Each deletion empties the kind, so
+ * every invocation is timed on its own against freshly seeded comments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DeletionDataServletBenchmark {
+  @Param({"10", "1000", "100000"})
+  private int numComments;
+
+  @Param({"false", "true"})
+  private String async;
+
+  private final LocalServiceTestHelper datastoreConfiguration =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+  private ApiProxy.Environment environment;
+  private DatastoreService datastore;
+  private DeletionDataServlet deletionDataServlet;
+  private HttpServletRequest request;
+  private HttpServletResponse response;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    datastoreConfiguration.setUp();
+    environment = ApiProxy.getCurrentEnvironment();
+    datastore = DatastoreServiceFactory.getDatastoreService();
+    deletionDataServlet = new DeletionDataServlet();
+    deletionDataServlet.init();
+    request = mock(HttpServletRequest.class);
+    when(request.getParameter(REQUEST_ASYNC_PARAM)).thenReturn(async);
+    response = mock(HttpServletResponse.class);
+  }
+
+  @Setup(Level.Invocation)
+  public void seedComments() {
+    ApiProxy.setEnvironmentForCurrentThread(environment);
+    BenchmarkComments.seed(datastore, numComments);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    datastoreConfiguration.tearDown();
+  }
+
+  @Benchmark
+  public void doPost() throws Exception {
+    deletionDataServlet.doPost(request, response);
+  }
+}
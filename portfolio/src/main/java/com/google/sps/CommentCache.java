@@ -0,0 +1,132 @@
+package com.google.sps;
+
+import static com.google.sps.Constants.MAX_CACHED_COMMENTS;
+
+import com.google.appengine.api.datastore.Key;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Iterables;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Bounded, thread-safe cache of the formatted comments served by the comment listing.
+ * Reads are lock-free against an immutable snapshot; writes are serialized. Each snapshot is
+ * tagged with the CommentVersion it was loaded at and only answers reads of that same version, so
+ * a comment stored or deleted by any instance, which changes the shared version, makes the
+ * snapshot miss instead of serving stale comments. Comments are kept by key in the order Datastore
+ * lists them, so a comment written through lands where a query would return it, and one the cached
+ * query already saw isn't added twice.
+ */
+final class CommentCache {
+  private static final CommentCache INSTANCE = new CommentCache(MAX_CACHED_COMMENTS);
+
+  private final int capacity;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private volatile Snapshot snapshot;
+
+  CommentCache(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /* Returns the cache shared by the comment servlets */
+  static CommentCache getInstance() {
+    return INSTANCE;
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  /*
+   * Returns the first numComments cached comments at the given version, or empty if the cache
+   * cannot answer the request without going to Datastore.
+   */
+  Optional<List<String>> get(CommentVersion version, int numComments) {
+    Snapshot current = snapshot;
+    if (current != null && current.version.equals(version)
+        && (numComments <= current.comments.size() || current.complete)) {
+      hits.incrementAndGet();
+      ImmutableList<String> comments = current.comments.values().asList();
+      return Optional.of(comments.subList(0, Math.min(numComments, comments.size())));
+    }
+    misses.incrementAndGet();
+    return Optional.empty();
+  }
+
+  /*
+   * Caches comments loaded from Datastore after reading the given version, by key. complete is true
+   * when the comments are every comment that exists.
+   */
+  synchronized void put(CommentVersion version, SortedMap<Key, String> comments, boolean complete) {
+    if (comments.size() > capacity) {
+      snapshot = new Snapshot(version,
+          ImmutableSortedMap.copyOf(Iterables.limit(comments.entrySet(), capacity)), false);
+    } else {
+      snapshot = new Snapshot(version, ImmutableSortedMap.copyOfSorted(comments), complete);
+    }
+  }
+
+  /*
+   * Writes a comment through to the cache, given the version change of the transaction that stored
+   * it. The cache is dropped if anything else changed since the cached comments were loaded.
+   */
+  synchronized void add(Key key, String comment, CommentVersion.Change change) {
+    Snapshot current = snapshot;
+    if (current == null) {
+      return;
+    }
+    Optional<CommentVersion> next = current.version.after(change);
+    if (!next.isPresent()) {
+      // Another change may be missing from the cache.
+      snapshot = null;
+    } else if (current.comments.containsKey(key)
+        || (!current.complete && key.compareTo(current.comments.lastKey()) > 0)) {
+      // The cached query already saw the comment, or it comes after the cached prefix.
+      snapshot = new Snapshot(next.get(), current.comments, current.complete);
+    } else {
+      ImmutableSortedMap<Key, String> comments = ImmutableSortedMap.<Key, String>naturalOrder()
+          .putAll(current.comments).put(key, comment).build();
+      if (comments.size() > capacity) {
+        snapshot = new Snapshot(next.get(), comments.headMap(comments.lastKey()), false);
+      } else {
+        snapshot = new Snapshot(next.get(), comments, current.complete);
+      }
+    }
+  }
+
+  /* Drops every cached comment */
+  synchronized void invalidate() {
+    snapshot = null;
+  }
+
+  long hitCount() {
+    return hits.get();
+  }
+
+  long missCount() {
+    return misses.get();
+  }
+
+  /* Fraction of lookups served from the cache, or 0 if there have been none */
+  double hitRate() {
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  private static final class Snapshot {
+    private final CommentVersion version;
+    private final ImmutableSortedMap<Key, String> comments;
+    private final boolean complete;
+
+    Snapshot(CommentVersion version, ImmutableSortedMap<Key, String> comments, boolean complete) {
+      this.version = version;
+      this.comments = comments;
+      this.complete = complete;
+    }
+  }
+}
@@ -3,6 +3,7 @@ package com.google.sps;
 import static com.google.sps.Constants.COMMENT_ENTITY_NAME;
 import static com.google.sps.Constants.COMMENT_NAME_ID;
 import static com.google.sps.Constants.COMMENT_TEXT_ID;
+import static com.google.sps.Constants.COMMENT_TIMESTAMP_ID;
  
 import com.google.appengine.api.datastore.Entity;
 import com.google.auto.value.AutoValue;
@@ -10,21 +11,28 @@ import com.google.auto.value.AutoValue;
 @AutoValue
 /* A comment made by a user */
 abstract class CommentEntity {
+  static CommentEntity create(String name, String commentText, long timestamp) {
+    return new AutoValue_CommentEntity(name, commentText, timestamp);
+  }
+ 
   static CommentEntity create(String name, String commentText) {
-    return new AutoValue_CommentEntity(name, commentText);
+    return create(name, commentText, System.currentTimeMillis());
   }
  
   static CommentEntity create(String commentText) {
-    return new AutoValue_CommentEntity("Anonymous", commentText);
+    return create("Anonymous", commentText);
   }
  
   abstract String name();
   abstract String commentText();
+  /* Milliseconds since epoch at which the comment was made, used to order comments */
+  abstract long timestamp();
  
   Entity toEntity() {
     Entity entity = new Entity(COMMENT_ENTITY_NAME);
     entity.setProperty(COMMENT_NAME_ID, name());
     entity.setProperty(COMMENT_TEXT_ID, commentText());
+    entity.setProperty(COMMENT_TIMESTAMP_ID, timestamp());
     return entity;
   }
 }
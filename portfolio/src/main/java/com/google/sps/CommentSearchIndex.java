@@ -0,0 +1,286 @@
+package com.google.sps;
+
+import static com.google.sps.Constants.COMMENT_NAME_ID;
+import static com.google.sps.Constants.COMMENT_TEXT_ID;
+import static com.google.sps.Constants.COMMENT_TIMESTAMP_ID;
+import static com.google.sps.Constants.SEARCH_INDEX_CATCH_UP_MARGIN_MILLIS;
+import static com.google.sps.Constants.SEARCH_INDEX_VERSION_CHECK_INTERVAL_MILLIS;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/*
+ * In-memory inverted index from the words of each comment's name and text to the comments that
+ * contain them. Queries match comments containing every query word, ranked by how often the words
+ * occur, without touching Datastore.
+ *
+ * The index remembers the CommentVersion it holds the comments of. Before a search it compares that
+ * with the shared version at most once per check interval, so comments changed by another instance
+ * show up within that interval. When the version has moved
+ * the index only loads the comments posted since its newest one, and falls back to loading every
+ * comment when comments may have been deleted or the catch-up doesn't account for them all. Loading
+ * happens outside the lock searches take, so searches keep running against the previous contents.
+ */
+final class CommentSearchIndex {
+  private static final CommentSearchIndex INSTANCE =
+      new CommentSearchIndex(SEARCH_INDEX_VERSION_CHECK_INTERVAL_MILLIS);
+
+  /* Where the index reads comments from when it is stale */
+  interface CommentSource {
+    /* Every stored comment */
+    Iterable<Entity> loadAll();
+
+    /* The comments whose timestamp is at or after timestampMillis */
+    Iterable<Entity> loadSince(long timestampMillis);
+
+    /* The number of stored comments */
+    long count();
+  }
+
+  private final long versionCheckIntervalNanos;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  // Held while loading comments, so only one search at a time brings the index up to date.
+  private final ReentrantLock refreshLock = new ReentrantLock();
+  // Word -> comment key -> number of times the word occurs in that comment. Guarded by lock.
+  private Map<String, Map<Key, Integer>> postings = new HashMap<>();
+  // Comment key -> comment formatted as it is listed. Guarded by lock.
+  private Map<Key, String> comments = new HashMap<>();
+  // The newest timestamp among the indexed comments. Guarded by lock.
+  private long latestTimestamp = Long.MIN_VALUE;
+  // The version the index holds the comments of, or null if it must be rebuilt. Guarded by lock.
+  private CommentVersion version;
+  // Bumped by every clear, so a refresh that loaded comments before it doesn't undo it. Guarded by
+  // lock.
+  private long generation;
+  // When the version was last compared with the shared one.
+  private volatile long versionCheckedNanos;
+
+  CommentSearchIndex(long versionCheckIntervalMillis) {
+    this.versionCheckIntervalNanos = TimeUnit.MILLISECONDS.toNanos(versionCheckIntervalMillis);
+  }
+
+  /* Returns the index shared by the comment servlets */
+  static CommentSearchIndex getInstance() {
+    return INSTANCE;
+  }
+
+  /*
+   * Brings the index up to the shared version unless it was checked within the check interval. The
+   * comments are loaded from source after the version is read.
+   */
+  void refreshIfStale(Supplier<CommentVersion> readVersion, CommentSource source) {
+    if (!isVersionCheckDue()) {
+      return;
+    }
+    refreshLock.lock();
+    try {
+      if (!isVersionCheckDue()) {
+        return;
+      }
+      CommentVersion currentVersion = readVersion.get();
+      CommentVersion indexedVersion;
+      long since;
+      long loadedGeneration;
+      lock.readLock().lock();
+      try {
+        indexedVersion = version;
+        since = latestTimestamp;
+        loadedGeneration = generation;
+      } finally {
+        lock.readLock().unlock();
+      }
+      if (!currentVersion.equals(indexedVersion)) {
+        // Deleting comments bumps every shard, so if some shard hasn't moved nothing was deleted.
+        if (indexedVersion == null || currentVersion.changedEveryShardSince(indexedVersion)
+            || !catchUp(currentVersion, since, loadedGeneration, source)) {
+          rebuild(currentVersion, loadedGeneration, source.loadAll());
+        }
+      }
+      versionCheckedNanos = System.nanoTime();
+    } finally {
+      refreshLock.unlock();
+    }
+  }
+
+  private boolean isVersionCheckDue() {
+    lock.readLock().lock();
+    try {
+      return version == null || System.nanoTime() - versionCheckedNanos >= versionCheckIntervalNanos;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /*
+   * Adds the comments posted since the index was built, allowing for clocks that differ between
+   * instances, and returns false if the index still doesn't hold every comment.
+   */
+  private boolean catchUp(CommentVersion currentVersion, long since, long loadedGeneration,
+      CommentSource source) {
+    List<Entity> recent = new ArrayList<>();
+    // An empty index has no newest comment, so every comment is new.
+    long from = since == Long.MIN_VALUE ? since : since - SEARCH_INDEX_CATCH_UP_MARGIN_MILLIS;
+    for (Entity entity : source.loadSince(from)) {
+      recent.add(entity);
+    }
+    long numComments = source.count();
+    lock.writeLock().lock();
+    try {
+      if (generation != loadedGeneration) {
+        // Cleared while loading, so the next search rebuilds the index anyway.
+        return true;
+      }
+      for (Entity entity : recent) {
+        addLocked(entity);
+      }
+      // Nothing was deleted, so the index holds every comment exactly when the counts agree.
+      if (comments.size() != numComments) {
+        return false;
+      }
+      version = currentVersion;
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void rebuild(CommentVersion currentVersion, long loadedGeneration,
+      Iterable<Entity> entities) {
+    CommentSearchIndex loaded = new CommentSearchIndex(0);
+    for (Entity entity : entities) {
+      loaded.addLocked(entity);
+    }
+    lock.writeLock().lock();
+    try {
+      if (generation != loadedGeneration) {
+        return;
+      }
+      postings = loaded.postings;
+      comments = loaded.comments;
+      latestTimestamp = loaded.latestTimestamp;
+      version = currentVersion;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /*
+   * Indexes a stored comment entity, which must have a complete key, given the version change of the
+   * transaction that stored it. If anything else changed since the index was built, the index is
+   * left to be brought up to date by the next search instead.
+   */
+  void add(Entity entity, CommentVersion.Change change) {
+    lock.writeLock().lock();
+    try {
+      Optional<CommentVersion> next =
+          version == null ? Optional.empty() : version.after(change);
+      if (next.isPresent()) {
+        addLocked(entity);
+        version = next.get();
+      } else {
+        // Search again soon rather than after the check interval.
+        versionCheckedNanos = System.nanoTime() - versionCheckIntervalNanos;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /* Empties the index, which is rebuilt by the next search */
+  void clear() {
+    lock.writeLock().lock();
+    try {
+      postings = new HashMap<>();
+      comments = new HashMap<>();
+      latestTimestamp = Long.MIN_VALUE;
+      version = null;
+      generation++;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /* Indexes a comment unless it is indexed already, e.g. because a search loaded it first */
+  private void addLocked(Entity entity) {
+    Key key = entity.getKey();
+    if (comments.containsKey(key)) {
+      return;
+    }
+    String name = String.valueOf(entity.getProperty(COMMENT_NAME_ID));
+    String text = String.valueOf(entity.getProperty(COMMENT_TEXT_ID));
+    comments.put(key, String.format("%s: %s", name, text));
+    for (String word : tokenize(name + " " + text)) {
+      postings.computeIfAbsent(word, unused -> new HashMap<>()).merge(key, 1, Integer::sum);
+    }
+    Object timestamp = entity.getProperty(COMMENT_TIMESTAMP_ID);
+    if (timestamp instanceof Long) {
+      latestTimestamp = Math.max(latestTimestamp, (Long) timestamp);
+    }
+  }
+
+  /*
+   * Returns up to limit formatted comments containing every word of the query, most frequent
+   * matches first.
+   */
+  List<String> search(String query, int limit) {
+    Set<String> words = new LinkedHashSet<>(tokenize(query));
+    if (words.isEmpty()) {
+      return new ArrayList<>();
+    }
+    lock.readLock().lock();
+    try {
+      List<Map<Key, Integer>> wordPostings = new ArrayList<>(words.size());
+      for (String word : words) {
+        Map<Key, Integer> wordPosting = postings.get(word);
+        if (wordPosting == null) {
+          return new ArrayList<>();
+        }
+        wordPostings.add(wordPosting);
+      }
+      // Intersect starting from the rarest word so the fewest candidates are checked.
+      wordPostings.sort(Comparator.comparingInt(Map::size));
+      Map<Key, Integer> scores = new HashMap<>(wordPostings.get(0));
+      for (Map<Key, Integer> wordPosting : wordPostings.subList(1, wordPostings.size())) {
+        scores.keySet().retainAll(wordPosting.keySet());
+        for (Map.Entry<Key, Integer> score : scores.entrySet()) {
+          score.setValue(score.getValue() + wordPosting.get(score.getKey()));
+        }
+      }
+      List<Map.Entry<Key, Integer>> ranked = new ArrayList<>(scores.entrySet());
+      ranked.sort(Map.Entry.<Key, Integer>comparingByValue().reversed()
+          .thenComparing(Map.Entry.comparingByKey()));
+      List<String> results = new ArrayList<>(Math.min(limit, ranked.size()));
+      for (Map.Entry<Key, Integer> match : ranked.subList(0, Math.min(limit, ranked.size()))) {
+        results.add(comments.get(match.getKey()));
+      }
+      return results;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /* Splits text into lower-case words, ignoring punctuation */
+  private static List<String> tokenize(String text) {
+    List<String> words = new ArrayList<>();
+    for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+      if (!word.isEmpty()) {
+        words.add(word);
+      }
+    }
+    return words;
+  }
+}
@@ -0,0 +1,91 @@
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/*
+ * Version of the comment collection, read from the shards of ShardedCommentCounter. Every
+ * transaction that stores or deletes comments bumps the version of the shard it updates, so the
+ * versions are shared by every instance and their sum grows by one with each change. The sum is
+ * used as the ETag for comment listings so that unchanged listings can be answered with 304 Not
+ * Modified, whichever instance made the last change.
+ */
+final class CommentVersion {
+  private final long[] shardVersions;
+
+  CommentVersion(long[] shardVersions) {
+    this.shardVersions = shardVersions.clone();
+  }
+
+  /*
+   * Returns the version after the given change, if this is the version the change was made on,
+   * i.e. no other change happened since this version was read.
+   */
+  Optional<CommentVersion> after(Change change) {
+    if (shardVersions[change.shard] != change.previousShardVersion) {
+      return Optional.empty();
+    }
+    long[] next = shardVersions.clone();
+    next[change.shard]++;
+    return Optional.of(new CommentVersion(next));
+  }
+
+  /* Returns true if every shard has changed since the given version */
+  boolean changedEveryShardSince(CommentVersion earlier) {
+    for (int i = 0; i < shardVersions.length; i++) {
+      if (shardVersions[i] == earlier.shardVersions[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /* Returns the version as a quoted entity tag */
+  String etag() {
+    long sum = 0;
+    for (long shardVersion : shardVersions) {
+      sum += shardVersion;
+    }
+    return "\"" + sum + "\"";
+  }
+
+  /* Returns true if an If-None-Match header value lists the given entity tag */
+  static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      // Weak comparison, as required for If-None-Match.
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals("*") || candidate.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof CommentVersion
+        && Arrays.equals(shardVersions, ((CommentVersion) other).shardVersions);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(shardVersions);
+  }
+
+  /* One transaction's bump of one shard's version */
+  static final class Change {
+    private final int shard;
+    private final long previousShardVersion;
+
+    Change(int shard, long previousShardVersion) {
+      this.shard = shard;
+      this.previousShardVersion = previousShardVersion;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package com.google.sps;
+
+import static com.google.sps.Constants.DEFAULT_WRITE_BATCH_SIZE;
+import static com.google.sps.Constants.DEFAULT_WRITE_FLUSH_INTERVAL_MILLIS;
+import static com.google.sps.Constants.GROUP_COMMIT_PROPERTY;
+import static com.google.sps.Constants.MAX_COMMENTS_PER_TRANSACTION;
+import static com.google.sps.Constants.WRITE_BATCH_SIZE_PROPERTY;
+import static com.google.sps.Constants.WRITE_FLUSH_INTERVAL_PROPERTY;
+
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Group-commits comment writes from concurrent requests. The first request to arrive opens a batch
+ * and becomes its leader: it waits until the batch is full or the flush interval has passed, then
+ * stores the whole batch through the comment counter in a single transaction, so each comment is
+ * counted as it is stored. That caps a batch at MAX_COMMENTS_PER_TRANSACTION entities. Each caller
+ * returns once its entity is durable.
+ * No background thread is used, so this works within App Engine request threads. Requests only
+ * share a batch when the app is marked threadsafe, so group commit is enabled together with it.
+ */
+final class CommentWriteBatcher {
+  // Present only when comment writes are group-committed.
+  private static final Optional<CommentWriteBatcher> INSTANCE =
+      Boolean.getBoolean(GROUP_COMMIT_PROPERTY)
+          ? Optional.of(new CommentWriteBatcher(
+              new ShardedCommentCounter(DatastoreServiceFactory.getDatastoreService()),
+              Integer.getInteger(WRITE_BATCH_SIZE_PROPERTY, DEFAULT_WRITE_BATCH_SIZE),
+              Long.getLong(WRITE_FLUSH_INTERVAL_PROPERTY, DEFAULT_WRITE_FLUSH_INTERVAL_MILLIS)))
+          : Optional.empty();
+
+  private final ShardedCommentCounter counter;
+  private final int maxBatchSize;
+  private final long flushIntervalNanos;
+  private final Object lock = new Object();
+  // The batch new writes join, or null if none is open. Guarded by lock.
+  private Batch openBatch;
+
+  private final AtomicLong batchesFlushed = new AtomicLong();
+  private final AtomicLong entitiesFlushed = new AtomicLong();
+  private final AtomicLong totalFlushNanos = new AtomicLong();
+
+  CommentWriteBatcher(ShardedCommentCounter counter, int maxBatchSize, long flushIntervalMillis) {
+    if (maxBatchSize <= 0 || maxBatchSize > MAX_COMMENTS_PER_TRANSACTION) {
+      throw new IllegalArgumentException(
+          "maxBatchSize must be between 1 and " + MAX_COMMENTS_PER_TRANSACTION);
+    }
+    this.counter = counter;
+    this.maxBatchSize = maxBatchSize;
+    this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+  }
+
+  /* Returns the batcher shared by the comment servlets, or empty if group commit is disabled */
+  static Optional<CommentWriteBatcher> getInstance() {
+    return INSTANCE;
+  }
+
+  /* Stores the entity as part of a batch and blocks until that batch has been written */
+  void put(Entity entity) throws IOException {
+    Batch batch;
+    boolean isLeader;
+    CompletableFuture<Void> written = new CompletableFuture<>();
+    synchronized (lock) {
+      isLeader = openBatch == null;
+      if (isLeader) {
+        openBatch = new Batch(System.nanoTime());
+      }
+      batch = openBatch;
+      batch.entities.add(entity);
+      batch.written.add(written);
+      if (batch.entities.size() >= maxBatchSize) {
+        // Close the full batch and wake its leader.
+        openBatch = null;
+        lock.notifyAll();
+      }
+    }
+    if (isLeader) {
+      awaitBatchClose(batch);
+      flush(batch);
+    }
+    try {
+      written.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing comment", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to write comment", e.getCause());
+    }
+  }
+
+  private void awaitBatchClose(Batch batch) {
+    synchronized (lock) {
+      long deadline = batch.openedNanos + flushIntervalNanos;
+      long remainingNanos;
+      try {
+        while (openBatch == batch && (remainingNanos = deadline - System.nanoTime()) > 0) {
+          TimeUnit.NANOSECONDS.timedWait(lock, remainingNanos);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        if (openBatch == batch) {
+          openBatch = null;
+        }
+      }
+    }
+  }
+
+  private void flush(Batch batch) {
+    try {
+      counter.putComments(batch.entities);
+      batch.written.forEach(written -> written.complete(null));
+    } catch (RuntimeException e) {
+      batch.written.forEach(written -> written.completeExceptionally(e));
+    } finally {
+      batchesFlushed.incrementAndGet();
+      entitiesFlushed.addAndGet(batch.entities.size());
+      totalFlushNanos.addAndGet(System.nanoTime() - batch.openedNanos);
+    }
+  }
+
+  int maxBatchSize() {
+    return maxBatchSize;
+  }
+
+  long flushIntervalMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos);
+  }
+
+  long batchesFlushed() {
+    return batchesFlushed.get();
+  }
+
+  long entitiesFlushed() {
+    return entitiesFlushed.get();
+  }
+
+  /* Mean number of entities written per batch, or 0 if nothing has been flushed */
+  double averageBatchSize() {
+    long batches = batchesFlushed.get();
+    return batches == 0 ? 0 : (double) entitiesFlushed.get() / batches;
+  }
+
+  /* Mean time from a batch opening until it was durable, or 0 if nothing has been flushed */
+  double averageFlushMillis() {
+    long batches = batchesFlushed.get();
+    return batches == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalFlushNanos.get()) / 1000.0 / batches;
+  }
+
+  private static final class Batch {
+    private final long openedNanos;
+    private final List<Entity> entities = new ArrayList<>();
+    // Completed once the entity at the same index is durable.
+    private final List<CompletableFuture<Void>> written = new ArrayList<>();
+
+    Batch(long openedNanos) {
+      this.openedNanos = openedNanos;
+    }
+  }
+}
@@ -3,11 +3,38 @@ package com.google.sps;
 public final class Constants {
   private Constants() {}
   public static final int DEFAULT_NUM_COMMENTS = 10;
+  public static final int MAX_PAGE_SIZE = 100;
+  public static final int MAX_CACHED_COMMENTS = 100;
+  /* Datastore accepts at most 500 keys in a single batch delete */
+  public static final int DELETE_BATCH_SIZE = 500;
+  public static final int MAX_IN_FLIGHT_DELETES = 4;
+  public static final int NUM_COMMENT_COUNTER_SHARDS = 20;
+  /* A cross-group transaction spans at most 25 entity groups, one of which is a counter shard */
+  public static final int MAX_COMMENTS_PER_TRANSACTION = 24;
+  /* A group-committed batch is stored in one transaction, so it can't be any larger */
+  public static final int DEFAULT_WRITE_BATCH_SIZE = MAX_COMMENTS_PER_TRANSACTION;
+  public static final long DEFAULT_WRITE_FLUSH_INTERVAL_MILLIS = 20;
+  public static final String GROUP_COMMIT_PROPERTY = "portfolio.comments.groupCommit";
+  public static final String WRITE_BATCH_SIZE_PROPERTY = "portfolio.comments.writeBatchSize";
+  public static final String WRITE_FLUSH_INTERVAL_PROPERTY = "portfolio.comments.writeFlushIntervalMillis";
+  /* How often a search compares the index with the version shared by every instance */
+  public static final long SEARCH_INDEX_VERSION_CHECK_INTERVAL_MILLIS = 1000;
+  /* How far back the search index looks for new comments, to allow for instances' clocks differing */
+  public static final long SEARCH_INDEX_CATCH_UP_MARGIN_MILLIS = 60000;
   public static final String INDEX_URL = "/index.html";
   public static final String COMMENT_ENTITY_NAME = "Comment";
   public static final String COMMENT_NAME_ID = "nameText";
   public static final String COMMENT_TEXT_ID = "commentText";
+  public static final String COMMENT_TIMESTAMP_ID = "timestamp";
+  public static final String COMMENT_COUNTER_SHARD_ENTITY_NAME = "CommentCounterShard";
+  public static final String COMMENT_COUNTER_COUNT_ID = "count";
+  public static final String COMMENT_COUNTER_VERSION_ID = "version";
   public static final String REQUEST_COMMENT_PARAM = "comment-input";
   public static final String REQUEST_NAME_PARAM = "name-input";
   public static final String REQUEST_NUM_COMMENTS_PARAM = "numberofcomments";
+  public static final String REQUEST_PAGE_SIZE_PARAM = "pagesize";
+  public static final String REQUEST_CURSOR_PARAM = "cursor";
+  public static final String REQUEST_ASYNC_PARAM = "async";
+  public static final String REQUEST_SEARCH_QUERY_PARAM = "q";
+  public static final String REQUEST_METRICS_FORMAT_PARAM = "format";
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.google.sps;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Lock-free latency histogram with log-linear buckets, in the style of HdrHistogram. Values below
+ * 2^SUB_BUCKET_BITS microseconds are recorded exactly; larger values fall into one of
+ * 2^SUB_BUCKET_BITS buckets per power of two, so every recorded value is within about 3% of the
+ * bucket it lands in. Recording is a couple of atomic increments, cheap enough to leave on.
+ */
+final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  // Values are clamped to 2^MAX_EXPONENT microseconds, about 19 hours.
+  private static final int MAX_EXPONENT = 36;
+  private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sumMicros = new AtomicLong();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  void recordMicros(long micros) {
+    long value = Math.max(0, Math.min(micros, (1L << MAX_EXPONENT) - 1));
+    buckets.incrementAndGet(bucketIndex(value));
+    count.incrementAndGet();
+    sumMicros.addAndGet(value);
+    long max = maxMicros.get();
+    while (value > max && !maxMicros.compareAndSet(max, value)) {
+      max = maxMicros.get();
+    }
+  }
+
+  long count() {
+    return count.get();
+  }
+
+  long sumMicros() {
+    return sumMicros.get();
+  }
+
+  long maxMicros() {
+    return maxMicros.get();
+  }
+
+  /*
+   * Returns the value at the given percentile (0 to 100) as the upper bound of its bucket, never
+   * more than the largest recorded value. Returns 0 if nothing has been recorded.
+   */
+  long percentileMicros(double percentile) {
+    long total = count.get();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += buckets.get(i);
+      if (seen >= rank) {
+        return Math.min(bucketUpperBound(i), maxMicros.get());
+      }
+    }
+    return maxMicros.get();
+  }
+
+  private static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+    return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  private static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    long subBucket = index % SUB_BUCKET_COUNT;
+    return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,54 @@
+package com.google.sps;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/* Per-path request metrics recorded by MetricsFilter and reported by MetricsServlet */
+final class RequestMetrics {
+  private static final RequestMetrics INSTANCE = new RequestMetrics();
+
+  private final ConcurrentHashMap<String, PathMetrics> metricsByPath = new ConcurrentHashMap<>();
+
+  /* Returns the metrics shared by the filter and the metrics servlet */
+  static RequestMetrics getInstance() {
+    return INSTANCE;
+  }
+
+  void record(String path, long latencyMicros, int status, long bytes) {
+    PathMetrics metrics = metricsByPath.computeIfAbsent(path, unused -> new PathMetrics());
+    metrics.latency.recordMicros(latencyMicros);
+    metrics.statusCounts.computeIfAbsent(status, unused -> new LongAdder()).increment();
+    metrics.bytes.add(bytes);
+  }
+
+  /* Returns the metrics of every path seen so far, ordered by path */
+  SortedMap<String, PathMetrics> snapshot() {
+    return new TreeMap<>(metricsByPath);
+  }
+
+  static final class PathMetrics {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final ConcurrentHashMap<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    private final LongAdder bytes = new LongAdder();
+
+    LatencyHistogram latency() {
+      return latency;
+    }
+
+    /* Returns the number of responses sent with each status code, ordered by status code */
+    SortedMap<Integer, Long> statusCounts() {
+      SortedMap<Integer, Long> counts = new TreeMap<>();
+      for (Map.Entry<Integer, LongAdder> statusCount : statusCounts.entrySet()) {
+        counts.put(statusCount.getKey(), statusCount.getValue().sum());
+      }
+      return counts;
+    }
+
+    long bytes() {
+      return bytes.sum();
+    }
+  }
+}
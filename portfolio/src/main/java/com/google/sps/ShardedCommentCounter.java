@@ -0,0 +1,199 @@
+package com.google.sps;
+
+import static com.google.sps.Constants.COMMENT_COUNTER_COUNT_ID;
+import static com.google.sps.Constants.COMMENT_COUNTER_SHARD_ENTITY_NAME;
+import static com.google.sps.Constants.COMMENT_COUNTER_VERSION_ID;
+import static com.google.sps.Constants.COMMENT_ENTITY_NAME;
+import static com.google.sps.Constants.MAX_COMMENTS_PER_TRANSACTION;
+import static com.google.sps.Constants.NUM_COMMENT_COUNTER_SHARDS;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.api.datastore.TransactionOptions;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Number of comments, kept as a sharded counter. Each update changes one randomly chosen shard
+ * entity so concurrent writes don't contend on a single entity; reading the count sums every shard
+ * with one batch get.
+ *
+ * Each update also bumps the version of its shard, which makes the shards the version of the
+ * comment collection shared by every instance. Shards are never deleted, so the version never goes
+ * back.
+ *
+ * New comments are stored in the same cross-group transaction that adds them to a shard, so the
+ * count can't miss a stored comment or count one that failed to store. After comments are deleted in
+ * bulk the count is recounted from the comments that are left, and only written if no shard changed
+ * since, so a comment posted meanwhile is counted exactly when it survives, concurrent deletions
+ * can't take the same comments off twice, and comments stored before the counter existed are counted
+ * too.
+ */
+final class ShardedCommentCounter {
+  private static final int MAX_INCREMENT_ATTEMPTS = 3;
+  private static final int MAX_RECOUNT_ATTEMPTS = 5;
+
+  private final DatastoreService datastore;
+
+  ShardedCommentCounter(DatastoreService datastore) {
+    this.datastore = datastore;
+  }
+
+  /*
+   * Stores comment entities and adds them to the count in one transaction, and returns the change
+   * it made to the version. At most MAX_COMMENTS_PER_TRANSACTION comments can be stored at once.
+   */
+  CommentVersion.Change putComments(List<Entity> comments) {
+    if (comments.size() > MAX_COMMENTS_PER_TRANSACTION) {
+      throw new IllegalArgumentException("Too many comments for one transaction: " + comments.size());
+    }
+    return update(comments.size(), comments);
+  }
+
+  /*
+   * Sets the count to the number of comments stored and bumps every shard's version. Retries while
+   * comments keep being stored between counting them and writing the shards.
+   */
+  void recount() {
+    for (int attempt = 1; ; attempt++) {
+      CommentVersion counted = version();
+      long numComments = datastore.prepare(new Query(COMMENT_ENTITY_NAME).setKeysOnly())
+          .countEntities(FetchOptions.Builder.withDefaults());
+      try {
+        if (resetShards(counted, numComments)) {
+          return;
+        }
+      } catch (ConcurrentModificationException e) {
+        // Another request wrote a shard after this transaction read it.
+      }
+      if (attempt == MAX_RECOUNT_ATTEMPTS) {
+        throw new ConcurrentModificationException("Comments kept changing while recounting them");
+      }
+    }
+  }
+
+  /*
+   * Writes numComments to the first shard and zero to the rest, unless a shard has changed since the
+   * version the comments were counted at. Returns whether the shards were written.
+   */
+  private boolean resetShards(CommentVersion counted, long numComments) {
+    // Every shard is the root of its own entity group.
+    Transaction txn = datastore.beginTransaction(TransactionOptions.Builder.withXG(true));
+    try {
+      List<Key> keys = shardKeys();
+      Map<Key, Entity> shards = datastore.get(txn, keys);
+      long[] shardVersions = new long[NUM_COMMENT_COUNTER_SHARDS];
+      for (int i = 0; i < NUM_COMMENT_COUNTER_SHARDS; i++) {
+        Entity shard = shards.get(keys.get(i));
+        shardVersions[i] = shard == null ? 0 : shardVersion(shard);
+      }
+      if (!counted.equals(new CommentVersion(shardVersions))) {
+        return false;
+      }
+      List<Entity> toPut = new ArrayList<>(NUM_COMMENT_COUNTER_SHARDS);
+      for (int i = 0; i < NUM_COMMENT_COUNTER_SHARDS; i++) {
+        Entity shard = new Entity(keys.get(i));
+        shard.setProperty(COMMENT_COUNTER_COUNT_ID, i == 0 ? numComments : 0L);
+        shard.setProperty(COMMENT_COUNTER_VERSION_ID, shardVersions[i] + 1);
+        toPut.add(shard);
+      }
+      datastore.put(txn, toPut);
+      txn.commit();
+      return true;
+    } finally {
+      if (txn.isActive()) {
+        txn.rollback();
+      }
+    }
+  }
+
+  /* Adds delta to a random shard, retrying on another shard if the first is contended */
+  private CommentVersion.Change update(long delta, List<Entity> entities) {
+    for (int attempt = 1; ; attempt++) {
+      int shard = ThreadLocalRandom.current().nextInt(NUM_COMMENT_COUNTER_SHARDS);
+      try {
+        return new CommentVersion.Change(shard, updateShard(shardKey(shard), delta, entities));
+      } catch (ConcurrentModificationException e) {
+        if (attempt == MAX_INCREMENT_ATTEMPTS) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  /* Returns the version the shard had before the update */
+  private long updateShard(Key shardKey, long delta, List<Entity> entities) {
+    // Every comment is the root of its own entity group, so storing them with the shard spans groups.
+    Transaction txn = datastore.beginTransaction(TransactionOptions.Builder.withXG(true));
+    try {
+      Entity shard;
+      try {
+        shard = datastore.get(txn, shardKey);
+      } catch (EntityNotFoundException e) {
+        shard = new Entity(shardKey);
+        shard.setProperty(COMMENT_COUNTER_COUNT_ID, 0L);
+      }
+      long previousVersion = shardVersion(shard);
+      shard.setProperty(COMMENT_COUNTER_COUNT_ID, (Long) shard.getProperty(COMMENT_COUNTER_COUNT_ID) + delta);
+      shard.setProperty(COMMENT_COUNTER_VERSION_ID, previousVersion + 1);
+      List<Entity> toPut = new ArrayList<>(entities);
+      toPut.add(shard);
+      datastore.put(txn, toPut);
+      txn.commit();
+      return previousVersion;
+    } finally {
+      if (txn.isActive()) {
+        txn.rollback();
+      }
+    }
+  }
+
+  /* Returns the number of comments, summing every shard in a single batch get */
+  long count() {
+    long count = 0;
+    for (Entity shard : datastore.get(shardKeys()).values()) {
+      count += (Long) shard.getProperty(COMMENT_COUNTER_COUNT_ID);
+    }
+    return count;
+  }
+
+  /* Returns the version of the comments, reading every shard in a single batch get */
+  CommentVersion version() {
+    List<Key> keys = shardKeys();
+    Map<Key, Entity> shards = datastore.get(keys);
+    long[] shardVersions = new long[NUM_COMMENT_COUNTER_SHARDS];
+    for (int i = 0; i < NUM_COMMENT_COUNTER_SHARDS; i++) {
+      Entity shard = shards.get(keys.get(i));
+      shardVersions[i] = shard == null ? 0 : shardVersion(shard);
+    }
+    return new CommentVersion(shardVersions);
+  }
+
+  // Shards written before versions were kept have none.
+  private static long shardVersion(Entity shard) {
+    Long version = (Long) shard.getProperty(COMMENT_COUNTER_VERSION_ID);
+    return version == null ? 0 : version;
+  }
+
+  // Keys are built per call because creating one needs the App Engine environment of a request.
+  private static Key shardKey(int shard) {
+    return KeyFactory.createKey(COMMENT_COUNTER_SHARD_ENTITY_NAME, "shard-" + shard);
+  }
+
+  private static List<Key> shardKeys() {
+    List<Key> keys = new ArrayList<>(NUM_COMMENT_COUNTER_SHARDS);
+    for (int i = 0; i < NUM_COMMENT_COUNTER_SHARDS; i++) {
+      keys.add(shardKey(i));
+    }
+    return keys;
+  }
+}
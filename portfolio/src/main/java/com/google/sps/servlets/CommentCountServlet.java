@@ -0,0 +1,43 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.gson.JsonObject;
+import com.google.sps.ShardedCommentCounter;
+import java.io.IOException;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/* Servlet that returns how many comments exist without scanning them */
+@WebServlet("/comment-count")
+public class CommentCountServlet extends HttpServlet {
+  private ShardedCommentCounter counter;
+  @Override
+  public void init() throws ServletException {
+    counter = new ShardedCommentCounter(DatastoreServiceFactory.getDatastoreService());
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    JsonObject json = new JsonObject();
+    json.addProperty("count", counter.count());
+    response.setContentType("application/json");
+    response.getWriter().println(json);
+  }
+}
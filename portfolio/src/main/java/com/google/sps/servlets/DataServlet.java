@@ -14,31 +14,48 @@
  
 package com.google.sps;
  
+import static com.google.appengine.api.datastore.FetchOptions.Builder.withLimit;
 import static com.google.sps.Constants.COMMENT_ENTITY_NAME;
 import static com.google.sps.Constants.COMMENT_NAME_ID;
 import static com.google.sps.Constants.COMMENT_TEXT_ID;
+import static com.google.sps.Constants.COMMENT_TIMESTAMP_ID;
 import static com.google.sps.Constants.DEFAULT_NUM_COMMENTS;
 import static com.google.sps.Constants.INDEX_URL;
+import static com.google.sps.Constants.MAX_PAGE_SIZE;
 import static com.google.sps.Constants.REQUEST_COMMENT_PARAM;
+import static com.google.sps.Constants.REQUEST_CURSOR_PARAM;
 import static com.google.sps.Constants.REQUEST_NAME_PARAM;
 import static com.google.sps.Constants.REQUEST_NUM_COMMENTS_PARAM;
+import static com.google.sps.Constants.REQUEST_PAGE_SIZE_PARAM;
  
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Cursor;
 import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
 import com.google.appengine.api.datastore.PreparedQuery;
+import com.google.appengine.api.datastore.QueryResultIterator;
 import com.google.appengine.api.datastore.Query.SortDirection;
 import com.google.appengine.api.datastore.Query;
 import com.google.common.collect.Streams;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.CommentCache;
 import com.google.sps.CommentEntity;
+import com.google.sps.CommentSearchIndex;
+import com.google.sps.CommentVersion;
+import com.google.sps.ShardedCommentCounter;
+import com.google.sps.CommentWriteBatcher;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -48,25 +65,115 @@ import javax.servlet.http.HttpServletResponse;
 /** Servlet that fetches and posts comments **/
 @WebServlet("/add-comments")
 public class DataServlet extends HttpServlet {
+  private static final Gson GSON = new Gson();
   private DatastoreService datastore;
+  private CommentCache cache;
+  private ShardedCommentCounter counter;
+  private CommentSearchIndex searchIndex;
+  // Present only when comment writes are group-committed.
+  private Optional<CommentWriteBatcher> writeBatcher;
   @Override
   public void init() throws ServletException {
     datastore = DatastoreServiceFactory.getDatastoreService();
+    cache = CommentCache.getInstance();
+    counter = new ShardedCommentCounter(datastore);
+    searchIndex = CommentSearchIndex.getInstance();
+    writeBatcher = CommentWriteBatcher.getInstance();
   }
   
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // Read the version before any comments so a concurrent write can only make the tag older.
+    CommentVersion commentVersion = counter.version();
+    String etag = commentVersion.etag();
+    response.setHeader("ETag", etag);
+    response.setHeader("Cache-Control", "no-cache");
+    if (CommentVersion.matches(request.getHeader("If-None-Match"), etag)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+    if (request.getParameter(REQUEST_PAGE_SIZE_PARAM) != null) {
+      doGetPage(request, response);
+      return;
+    }
     int numComments = getNumberOfCommentsToDisplay(request);
-    List<String> comments = new ArrayList();
-    int numCommentsAdded = 0;   
-    StreamSupport.stream(datastore.prepare(new Query(COMMENT_ENTITY_NAME)).asIterable().spliterator(), false)
-    .limit(numComments)
-    .forEach(entity -> {comments.add(String.format("%s: %s",entity.getProperty(COMMENT_NAME_ID), entity.getProperty(COMMENT_TEXT_ID)));});
- 
     response.setContentType("application/json");
+    if (numComments > cache.capacity()) {
+      // Too many comments to cache, so write them out as Datastore yields them instead of buffering.
+      JsonWriter jsonWriter = newJsonWriter(response);
+      jsonWriter.beginArray();
+      writeComments(jsonWriter, datastore.prepare(new Query(COMMENT_ENTITY_NAME)).asIterator(withLimit(numComments)));
+      jsonWriter.endArray();
+      jsonWriter.flush();
+      response.getWriter().println();
+      return;
+    }
+    List<String> comments = cache.get(commentVersion, numComments)
+        .orElseGet(() -> loadComments(commentVersion, numComments));
     response.getWriter().println(convertToJsonUsingGson(comments));
   }
  
+  /* Queries Datastore for enough comments to fill the cache and returns the first numComments */
+  private List<String> loadComments(CommentVersion commentVersion, int numComments) {
+    int limit = cache.capacity();
+    SortedMap<Key, String> commentsByKey = new TreeMap<>();
+    for (Entity entity : datastore.prepare(new Query(COMMENT_ENTITY_NAME)).asIterable(withLimit(limit))) {
+      commentsByKey.put(entity.getKey(), formatComment(entity));
+    }
+    cache.put(commentVersion, commentsByKey, commentsByKey.size() < limit);
+    List<String> comments = new ArrayList<>(commentsByKey.values());
+    return comments.size() > numComments ? comments.subList(0, numComments) : comments;
+  }
+ 
+  /*
+   * Streams one page of comments, newest first, followed by a cursor to fetch the next page.
+   * The cursor is omitted on the last page.
+   */
+  private void doGetPage(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    int pageSize = getPageSize(request);
+    Query query = new Query(COMMENT_ENTITY_NAME).addSort(COMMENT_TIMESTAMP_ID, SortDirection.DESCENDING);
+    QueryResultIterator<Entity> results;
+    try {
+      results = datastore.prepare(query).asQueryResultIterator(getPageFetchOptions(request, pageSize));
+      // Run the query before anything is written so that a bad cursor can still be reported.
+      results.hasNext();
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid cursor");
+      return;
+    }
+ 
+    response.setContentType("application/json");
+    JsonWriter jsonWriter = newJsonWriter(response);
+    jsonWriter.beginObject();
+    jsonWriter.name("comments").beginArray();
+    int numWritten = writeComments(jsonWriter, results);
+    jsonWriter.endArray();
+    // A short page means the query is exhausted, so there is no next page to point to.
+    if (numWritten == pageSize) {
+      jsonWriter.name("cursor").value(results.getCursor().toWebSafeString());
+    }
+    jsonWriter.endObject();
+    jsonWriter.flush();
+    response.getWriter().println();
+  }
+ 
+  /* Returns a writer that escapes HTML characters the same way GSON.toJson does */
+  private static JsonWriter newJsonWriter(HttpServletResponse response) throws IOException {
+    JsonWriter jsonWriter = GSON.newJsonWriter(response.getWriter());
+    jsonWriter.setHtmlSafe(true);
+    return jsonWriter;
+  }
+ 
+  /* Writes each comment to the open JSON array as it is read and returns how many were written */
+  private static int writeComments(JsonWriter jsonWriter, Iterator<Entity> entities) throws IOException {
+    int numWritten = 0;
+    while (entities.hasNext()) {
+      jsonWriter.value(formatComment(entities.next()));
+      numWritten++;
+    }
+    return numWritten;
+  }
+ 
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
     Optional<String> commentText = Optional.ofNullable(request.getParameter(REQUEST_COMMENT_PARAM));
@@ -78,14 +185,26 @@ public class DataServlet extends HttpServlet {
       } else {
         comment = CommentEntity.create(name, commentText.get());
       }
-      datastore.put(comment.toEntity());
+      Entity entity = comment.toEntity();
+      // Either way the comment is stored in the same transaction that counts it. A batched comment
+      // isn't written through to the cache or search index, which then catch up on the next version.
+      if (writeBatcher.isPresent()) {
+        writeBatcher.get().put(entity);
+      } else {
+        CommentVersion.Change change = counter.putComments(Arrays.asList(entity));
+        cache.add(entity.getKey(), formatComment(entity), change);
+        searchIndex.add(entity, change);
+      }
     }
     response.sendRedirect(INDEX_URL);        
   }
  
+  private static String formatComment(Entity entity) {
+    return String.format("%s: %s", entity.getProperty(COMMENT_NAME_ID), entity.getProperty(COMMENT_TEXT_ID));
+  }
+ 
   private String convertToJsonUsingGson(List data) {
-    Gson gson = new Gson();
-    return gson.toJson(data);
+    return GSON.toJson(data);
   }
   
   private int getNumberOfCommentsToDisplay(HttpServletRequest request) {
@@ -95,4 +214,21 @@ public class DataServlet extends HttpServlet {
     }
     return numComments;
   }
+ 
+  private int getPageSize(HttpServletRequest request) {
+    int pageSize = Integer.parseInt(request.getParameter(REQUEST_PAGE_SIZE_PARAM));
+    if (pageSize <= 0) {
+      pageSize = DEFAULT_NUM_COMMENTS;
+    }
+    return Math.min(pageSize, MAX_PAGE_SIZE);
+  }
+ 
+  private FetchOptions getPageFetchOptions(HttpServletRequest request, int pageSize) {
+    FetchOptions fetchOptions = withLimit(pageSize);
+    String cursorToken = request.getParameter(REQUEST_CURSOR_PARAM);
+    if (cursorToken != null && !cursorToken.isEmpty()) {
+      fetchOptions.startCursor(Cursor.fromWebSafeString(cursorToken));
+    }
+    return fetchOptions;
+  }
 }
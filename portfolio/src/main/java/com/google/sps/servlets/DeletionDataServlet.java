@@ -14,9 +14,14 @@
 
 package com.google.sps;
 
+import static com.google.appengine.api.datastore.FetchOptions.Builder.withChunkSize;
 import static com.google.sps.Constants.COMMENT_ENTITY_NAME;
+import static com.google.sps.Constants.DELETE_BATCH_SIZE;
 import static com.google.sps.Constants.INDEX_URL;
+import static com.google.sps.Constants.MAX_IN_FLIGHT_DELETES;
+import static com.google.sps.Constants.REQUEST_ASYNC_PARAM;
 
+import com.google.appengine.api.datastore.AsyncDatastoreService;
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
 import com.google.appengine.api.datastore.Entity;
@@ -27,11 +32,19 @@ import com.google.appengine.api.datastore.PreparedQuery;
 import com.google.appengine.api.datastore.Query.SortDirection;
 import com.google.appengine.api.datastore.Query;
 import com.google.gson.Gson;
+import com.google.sps.CommentCache;
 import com.google.sps.CommentEntity;
+import com.google.sps.CommentSearchIndex;
+import com.google.sps.ShardedCommentCounter;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -41,17 +54,77 @@ import javax.servlet.http.HttpServletResponse;
 /* Servlet for deleting all comments */
 @WebServlet("/delete-all-comments")
 public class DeletionDataServlet extends HttpServlet {
+  private static final Logger logger = Logger.getLogger(DeletionDataServlet.class.getName());
   private DatastoreService datastore;
+  private AsyncDatastoreService asyncDatastore;
+  private CommentCache cache;
+  private ShardedCommentCounter counter;
+  private CommentSearchIndex searchIndex;
   @Override
   public void init() throws ServletException {
     datastore = DatastoreServiceFactory.getDatastoreService();
+    asyncDatastore = DatastoreServiceFactory.getAsyncDatastoreService();
+    cache = CommentCache.getInstance();
+    counter = new ShardedCommentCounter(datastore);
+    searchIndex = CommentSearchIndex.getInstance();
   }
 
+  /*
+   * Deletes every comment by streaming keys from a keys-only query and deleting them in batches.
+   * With async=true, each batch is deleted while the next batch of keys is fetched. The comment count
+   * is then recounted from whatever comments are left.
+   */
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    for (Entity entity : datastore.prepare(new Query(COMMENT_ENTITY_NAME)).asIterable()) {
-      datastore.delete(entity.getKey());
+    boolean async = Boolean.parseBoolean(request.getParameter(REQUEST_ASYNC_PARAM));
+    Query query = new Query(COMMENT_ENTITY_NAME).setKeysOnly();
+    Queue<Future<Void>> pendingDeletes = new ArrayDeque<>();
+    List<Key> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+    long numDeleted = 0;
+    for (Entity entity : datastore.prepare(query).asIterable(withChunkSize(DELETE_BATCH_SIZE))) {
+      batch.add(entity.getKey());
+      if (batch.size() == DELETE_BATCH_SIZE) {
+        numDeleted += deleteBatch(batch, async, pendingDeletes);
+        batch = new ArrayList<>(DELETE_BATCH_SIZE);
+      }
     }
+    if (!batch.isEmpty()) {
+      numDeleted += deleteBatch(batch, async, pendingDeletes);
+    }
+    while (!pendingDeletes.isEmpty()) {
+      awaitDelete(pendingDeletes.remove());
+    }
+    logger.info(String.format("Deleted %d comments", numDeleted));
+    // Concurrent deletions may have removed some of the same comments, so count what is left.
+    counter.recount();
+    cache.invalidate();
+    searchIndex.clear();
     response.sendRedirect(INDEX_URL);
   }
+
+  /* Deletes one batch of keys, keeping at most MAX_IN_FLIGHT_DELETES async batches outstanding */
+  private int deleteBatch(List<Key> batch, boolean async, Queue<Future<Void>> pendingDeletes)
+      throws IOException {
+    if (async) {
+      if (pendingDeletes.size() == MAX_IN_FLIGHT_DELETES) {
+        awaitDelete(pendingDeletes.remove());
+      }
+      pendingDeletes.add(asyncDatastore.delete(batch));
+    } else {
+      datastore.delete(batch);
+    }
+    logger.fine(String.format("Issued deletion of %d comments", batch.size()));
+    return batch.size();
+  }
+
+  private static void awaitDelete(Future<Void> delete) throws IOException {
+    try {
+      delete.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while deleting comments", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to delete comments", e.getCause());
+    }
+  }
 }
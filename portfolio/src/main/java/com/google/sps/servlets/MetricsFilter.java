@@ -0,0 +1,204 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.sps.RequestMetrics;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRegistration;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/*
+ * Filter that records latency, status codes and response bytes for every servlet path. Requests
+ * that don't match one of the app's servlet paths, such as static files and 404s, share one
+ * "other" entry so that clients can't make the metrics grow without bound.
+ */
+@WebFilter("/*")
+public class MetricsFilter implements Filter {
+  private static final String OTHER_PATH = "other";
+  private RequestMetrics metrics;
+  private Set<String> servletPaths;
+  @Override
+  public void init(FilterConfig filterConfig) throws ServletException {
+    metrics = RequestMetrics.getInstance();
+    servletPaths = new HashSet<>();
+    for (ServletRegistration registration :
+        filterConfig.getServletContext().getServletRegistrations().values()) {
+      for (String mapping : registration.getMappings()) {
+        // "/" and wildcard mappings match any number of paths, so only exact mappings get an entry.
+        if (mapping.startsWith("/") && !mapping.equals("/") && !mapping.contains("*")) {
+          servletPaths.add(mapping);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+      throws IOException, ServletException {
+    if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+      chain.doFilter(request, response);
+      return;
+    }
+    long startNanos = System.nanoTime();
+    CountingResponse countingResponse = new CountingResponse((HttpServletResponse) response);
+    boolean failed = true;
+    try {
+      chain.doFilter(request, countingResponse);
+      failed = false;
+    } finally {
+      long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+      // An exception escaping the servlet is sent as a server error by the container.
+      int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : countingResponse.getStatus();
+      metrics.record(getPath((HttpServletRequest) request), latencyMicros, status,
+          countingResponse.bytesWritten);
+    }
+  }
+
+  @Override
+  public void destroy() {}
+
+  private String getPath(HttpServletRequest request) {
+    String path = request.getServletPath();
+    return servletPaths.contains(path) ? path : OTHER_PATH;
+  }
+
+  /* Response that counts the bytes written through its writer or output stream */
+  private static final class CountingResponse extends HttpServletResponseWrapper {
+    private long bytesWritten;
+    private PrintWriter writer;
+    private ServletOutputStream outputStream;
+
+    CountingResponse(HttpServletResponse response) {
+      super(response);
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      if (writer == null) {
+        boolean utf8 = StandardCharsets.UTF_8.name().equalsIgnoreCase(getCharacterEncoding());
+        writer = new PrintWriter(new CountingWriter(super.getWriter(), utf8));
+      }
+      return writer;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (outputStream == null) {
+        outputStream = new CountingOutputStream(super.getOutputStream());
+      }
+      return outputStream;
+    }
+
+    /* Counts characters as the bytes they encode to, in UTF-8 or a single-byte charset */
+    private final class CountingWriter extends Writer {
+      private final Writer delegate;
+      private final boolean utf8;
+
+      CountingWriter(Writer delegate, boolean utf8) {
+        this.delegate = delegate;
+        this.utf8 = utf8;
+      }
+
+      @Override
+      public void write(char[] chars, int offset, int length) throws IOException {
+        delegate.write(chars, offset, length);
+        if (!utf8) {
+          bytesWritten += length;
+          return;
+        }
+        for (int i = offset; i < offset + length; i++) {
+          char c = chars[i];
+          if (c < 0x80) {
+            bytesWritten += 1;
+          } else if (c < 0x800) {
+            bytesWritten += 2;
+          } else if (Character.isSurrogate(c)) {
+            // Each half of a surrogate pair accounts for half of its 4-byte encoding.
+            bytesWritten += 2;
+          } else {
+            bytesWritten += 3;
+          }
+        }
+      }
+
+      @Override
+      public void flush() throws IOException {
+        delegate.flush();
+      }
+
+      @Override
+      public void close() throws IOException {
+        delegate.close();
+      }
+    }
+
+    private final class CountingOutputStream extends ServletOutputStream {
+      private final ServletOutputStream delegate;
+
+      CountingOutputStream(ServletOutputStream delegate) {
+        this.delegate = delegate;
+      }
+
+      @Override
+      public void write(int b) throws IOException {
+        delegate.write(b);
+        bytesWritten++;
+      }
+
+      @Override
+      public void write(byte[] bytes, int offset, int length) throws IOException {
+        delegate.write(bytes, offset, length);
+        bytesWritten += length;
+      }
+
+      @Override
+      public void flush() throws IOException {
+        delegate.flush();
+      }
+
+      @Override
+      public void close() throws IOException {
+        delegate.close();
+      }
+
+      @Override
+      public boolean isReady() {
+        return delegate.isReady();
+      }
+
+      @Override
+      public void setWriteListener(WriteListener writeListener) {
+        delegate.setWriteListener(writeListener);
+      }
+    }
+  }
+}
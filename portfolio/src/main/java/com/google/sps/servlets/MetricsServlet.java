@@ -0,0 +1,163 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import static com.google.sps.Constants.REQUEST_METRICS_FORMAT_PARAM;
+
+import com.google.gson.JsonObject;
+import com.google.sps.CommentCache;
+import com.google.sps.CommentWriteBatcher;
+import com.google.sps.LatencyHistogram;
+import com.google.sps.RequestMetrics;
+import com.google.sps.RequestMetrics.PathMetrics;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/*
+ * Servlet that reports the request metrics recorded by MetricsFilter, as JSON by default or in the
+ * Prometheus text format with format=prometheus or an Accept header of text/plain.
+ */
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+  private static final double[] PERCENTILES = {50, 90, 99};
+  private RequestMetrics metrics;
+  private CommentCache cache;
+  private Optional<CommentWriteBatcher> writeBatcher;
+  @Override
+  public void init() throws ServletException {
+    metrics = RequestMetrics.getInstance();
+    cache = CommentCache.getInstance();
+    writeBatcher = CommentWriteBatcher.getInstance();
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    SortedMap<String, PathMetrics> snapshot = metrics.snapshot();
+    if (wantsPrometheus(request)) {
+      response.setContentType("text/plain; version=0.0.4");
+      writePrometheus(snapshot, response.getWriter());
+    } else {
+      response.setContentType("application/json");
+      response.getWriter().println(toJson(snapshot));
+    }
+  }
+
+  private static boolean wantsPrometheus(HttpServletRequest request) {
+    if ("prometheus".equals(request.getParameter(REQUEST_METRICS_FORMAT_PARAM))) {
+      return true;
+    }
+    return Optional.ofNullable(request.getHeader("Accept")).orElse("").startsWith("text/plain");
+  }
+
+  private JsonObject toJson(SortedMap<String, PathMetrics> snapshot) {
+    JsonObject paths = new JsonObject();
+    for (Map.Entry<String, PathMetrics> pathMetrics : snapshot.entrySet()) {
+      PathMetrics metrics = pathMetrics.getValue();
+      LatencyHistogram latency = metrics.latency();
+      JsonObject latencyMillis = new JsonObject();
+      for (double percentile : PERCENTILES) {
+        latencyMillis.addProperty("p" + (int) percentile, latency.percentileMicros(percentile) / 1000.0);
+      }
+      latencyMillis.addProperty("max", latency.maxMicros() / 1000.0);
+      JsonObject statusCounts = new JsonObject();
+      for (Map.Entry<Integer, Long> statusCount : metrics.statusCounts().entrySet()) {
+        statusCounts.addProperty(String.valueOf(statusCount.getKey()), statusCount.getValue());
+      }
+      JsonObject json = new JsonObject();
+      json.addProperty("requests", latency.count());
+      json.addProperty("bytes", metrics.bytes());
+      json.add("status", statusCounts);
+      json.add("latencyMillis", latencyMillis);
+      paths.add(pathMetrics.getKey(), json);
+    }
+    JsonObject commentCache = new JsonObject();
+    commentCache.addProperty("hits", cache.hitCount());
+    commentCache.addProperty("misses", cache.missCount());
+    commentCache.addProperty("hitRate", cache.hitRate());
+    JsonObject commentWrites = new JsonObject();
+    commentWrites.addProperty("groupCommit", writeBatcher.isPresent());
+    if (writeBatcher.isPresent()) {
+      CommentWriteBatcher batcher = writeBatcher.get();
+      commentWrites.addProperty("maxBatchSize", batcher.maxBatchSize());
+      commentWrites.addProperty("flushIntervalMillis", batcher.flushIntervalMillis());
+      commentWrites.addProperty("batchesFlushed", batcher.batchesFlushed());
+      commentWrites.addProperty("entitiesFlushed", batcher.entitiesFlushed());
+      commentWrites.addProperty("averageBatchSize", batcher.averageBatchSize());
+      commentWrites.addProperty("averageFlushMillis", batcher.averageFlushMillis());
+    }
+    JsonObject json = new JsonObject();
+    json.add("paths", paths);
+    json.add("commentCache", commentCache);
+    json.add("commentWrites", commentWrites);
+    return json;
+  }
+
+  private void writePrometheus(SortedMap<String, PathMetrics> snapshot, PrintWriter writer) {
+    writer.println("# TYPE portfolio_request_latency_seconds summary");
+    for (Map.Entry<String, PathMetrics> pathMetrics : snapshot.entrySet()) {
+      String path = escapeLabel(pathMetrics.getKey());
+      LatencyHistogram latency = pathMetrics.getValue().latency();
+      for (double percentile : PERCENTILES) {
+        writer.printf("portfolio_request_latency_seconds{path=\"%s\",quantile=\"%s\"} %s%n", path,
+            percentile / 100, latency.percentileMicros(percentile) / 1e6);
+      }
+      writer.printf("portfolio_request_latency_seconds{path=\"%s\",quantile=\"1.0\"} %s%n", path,
+          latency.maxMicros() / 1e6);
+      writer.printf("portfolio_request_latency_seconds_sum{path=\"%s\"} %s%n", path, latency.sumMicros() / 1e6);
+      writer.printf("portfolio_request_latency_seconds_count{path=\"%s\"} %d%n", path, latency.count());
+    }
+    writer.println("# TYPE portfolio_responses_total counter");
+    for (Map.Entry<String, PathMetrics> pathMetrics : snapshot.entrySet()) {
+      String path = escapeLabel(pathMetrics.getKey());
+      for (Map.Entry<Integer, Long> statusCount : pathMetrics.getValue().statusCounts().entrySet()) {
+        writer.printf("portfolio_responses_total{path=\"%s\",code=\"%d\"} %d%n", path,
+            statusCount.getKey(), statusCount.getValue());
+      }
+    }
+    writer.println("# TYPE portfolio_response_bytes_total counter");
+    for (Map.Entry<String, PathMetrics> pathMetrics : snapshot.entrySet()) {
+      writer.printf("portfolio_response_bytes_total{path=\"%s\"} %d%n", escapeLabel(pathMetrics.getKey()),
+          pathMetrics.getValue().bytes());
+    }
+    writer.println("# TYPE portfolio_comment_cache_hits_total counter");
+    writer.printf("portfolio_comment_cache_hits_total %d%n", cache.hitCount());
+    writer.println("# TYPE portfolio_comment_cache_misses_total counter");
+    writer.printf("portfolio_comment_cache_misses_total %d%n", cache.missCount());
+    if (writeBatcher.isPresent()) {
+      CommentWriteBatcher batcher = writeBatcher.get();
+      writer.println("# TYPE portfolio_comment_write_max_batch_size gauge");
+      writer.printf("portfolio_comment_write_max_batch_size %d%n", batcher.maxBatchSize());
+      writer.println("# TYPE portfolio_comment_write_flush_interval_seconds gauge");
+      writer.printf("portfolio_comment_write_flush_interval_seconds %s%n",
+          batcher.flushIntervalMillis() / 1e3);
+      writer.println("# TYPE portfolio_comment_write_batches_total counter");
+      writer.printf("portfolio_comment_write_batches_total %d%n", batcher.batchesFlushed());
+      writer.println("# TYPE portfolio_comment_write_entities_total counter");
+      writer.printf("portfolio_comment_write_entities_total %d%n", batcher.entitiesFlushed());
+    }
+  }
+
+  private static String escapeLabel(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
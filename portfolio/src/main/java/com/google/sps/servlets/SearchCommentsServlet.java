@@ -0,0 +1,89 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import static com.google.sps.Constants.COMMENT_ENTITY_NAME;
+import static com.google.sps.Constants.COMMENT_TIMESTAMP_ID;
+import static com.google.sps.Constants.DEFAULT_NUM_COMMENTS;
+import static com.google.sps.Constants.REQUEST_NUM_COMMENTS_PARAM;
+import static com.google.sps.Constants.REQUEST_SEARCH_QUERY_PARAM;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Query.FilterPredicate;
+import com.google.gson.Gson;
+import com.google.sps.CommentSearchIndex;
+import com.google.sps.ShardedCommentCounter;
+import java.io.IOException;
+import java.util.Optional;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/* Servlet that finds comments containing every word of a query */
+@WebServlet("/search-comments")
+public class SearchCommentsServlet extends HttpServlet {
+  private static final Gson GSON = new Gson();
+  private DatastoreService datastore;
+  private ShardedCommentCounter counter;
+  private CommentSearchIndex index;
+  private CommentSearchIndex.CommentSource commentSource;
+  @Override
+  public void init() throws ServletException {
+    datastore = DatastoreServiceFactory.getDatastoreService();
+    counter = new ShardedCommentCounter(datastore);
+    index = CommentSearchIndex.getInstance();
+    commentSource = new CommentSearchIndex.CommentSource() {
+      @Override
+      public Iterable<Entity> loadAll() {
+        return datastore.prepare(new Query(COMMENT_ENTITY_NAME)).asIterable();
+      }
+
+      @Override
+      public Iterable<Entity> loadSince(long timestampMillis) {
+        Query query = new Query(COMMENT_ENTITY_NAME).setFilter(
+            new FilterPredicate(COMMENT_TIMESTAMP_ID, FilterOperator.GREATER_THAN_OR_EQUAL, timestampMillis));
+        return datastore.prepare(query).asIterable();
+      }
+
+      @Override
+      public long count() {
+        return counter.count();
+      }
+    };
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // Comments stored or deleted by any instance since the index was built change the version.
+    index.refreshIfStale(counter::version, commentSource);
+    String query = Optional.ofNullable(request.getParameter(REQUEST_SEARCH_QUERY_PARAM)).orElse("");
+    response.setContentType("application/json");
+    response.getWriter().println(GSON.toJson(index.search(query, getNumberOfResults(request))));
+  }
+
+  private int getNumberOfResults(HttpServletRequest request) {
+    String numResults = request.getParameter(REQUEST_NUM_COMMENTS_PARAM);
+    if (numResults == null || Integer.parseInt(numResults) < 0) {
+      return DEFAULT_NUM_COMMENTS;
+    }
+    return Integer.parseInt(numResults);
+  }
+}
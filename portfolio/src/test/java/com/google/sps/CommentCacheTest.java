@@ -0,0 +1,78 @@
+package com.google.sps;
+
+import static com.google.sps.Constants.COMMENT_ENTITY_NAME;
+import static com.google.sps.Constants.NUM_COMMENT_COUNTER_SHARDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.common.collect.ImmutableSortedMap;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CommentCacheTest {
+  private static final CommentVersion INITIAL_VERSION =
+      new CommentVersion(new long[NUM_COMMENT_COUNTER_SHARDS]);
+  // The change a transaction storing one comment made to the initial version.
+  private static final CommentVersion.Change CHANGE = new CommentVersion.Change(0, 0);
+
+  private final LocalServiceTestHelper datastoreConfiguration =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+  @Before
+  public void setUp() {
+    datastoreConfiguration.setUp();
+  }
+
+  @After
+  public void tearDown() {
+    datastoreConfiguration.tearDown();
+  }
+
+  @Test
+  public void testAdd_skipsCommentTheLoadAlreadySaw() {
+    // A reader reads the initial version, then a writer stores comment 2 before the reader's query
+    // runs, so the reader caches it at the initial version before the writer writes it through.
+    CommentCache cache = new CommentCache(10);
+    cache.put(INITIAL_VERSION, ImmutableSortedMap.of(key(1), "Bob: Nice", key(2), "Sally: Hi"), true);
+
+    cache.add(key(2), "Sally: Hi", CHANGE);
+
+    assertEquals(Arrays.asList("Bob: Nice", "Sally: Hi"),
+        cache.get(INITIAL_VERSION.after(CHANGE).get(), 10).get());
+  }
+
+  @Test
+  public void testAdd_insertsCommentInKeyOrder() {
+    CommentCache cache = new CommentCache(10);
+    cache.put(INITIAL_VERSION, ImmutableSortedMap.of(key(1), "Bob: Nice", key(3), "Alice: Late"), true);
+
+    cache.add(key(2), "Sally: Hi", CHANGE);
+
+    assertEquals(Arrays.asList("Bob: Nice", "Sally: Hi", "Alice: Late"),
+        cache.get(INITIAL_VERSION.after(CHANGE).get(), 10).get());
+  }
+
+  @Test
+  public void testAdd_keepsPrefixWhenFull() {
+    CommentCache cache = new CommentCache(2);
+    cache.put(INITIAL_VERSION, ImmutableSortedMap.of(key(1), "Bob: Nice", key(3), "Alice: Late"), false);
+    cache.add(key(2), "Sally: Hi", CHANGE);
+    CommentVersion next = INITIAL_VERSION.after(CHANGE).get();
+
+    assertEquals(Arrays.asList("Bob: Nice", "Sally: Hi"), cache.get(next, 2).get());
+    assertFalse(cache.get(next, 3).isPresent());
+  }
+
+  private static Key key(long id) {
+    return KeyFactory.createKey(COMMENT_ENTITY_NAME, id);
+  }
+}
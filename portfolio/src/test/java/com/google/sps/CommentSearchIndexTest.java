@@ -0,0 +1,135 @@
+package com.google.sps;
+
+import static com.google.sps.Constants.COMMENT_ENTITY_NAME;
+import static com.google.sps.Constants.COMMENT_TIMESTAMP_ID;
+import static com.google.sps.Constants.NUM_COMMENT_COUNTER_SHARDS;
+import static org.junit.Assert.assertEquals;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CommentSearchIndexTest {
+  private static final CommentVersion INITIAL_VERSION =
+      new CommentVersion(new long[NUM_COMMENT_COUNTER_SHARDS]);
+  // The change a transaction storing one comment made to the initial version.
+  private static final CommentVersion.Change CHANGE = new CommentVersion.Change(0, 0);
+
+  private final LocalServiceTestHelper datastoreConfiguration =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+  // Checks the version before every search.
+  private final CommentSearchIndex index = new CommentSearchIndex(0);
+  private final FakeCommentSource source = new FakeCommentSource();
+
+  @Before
+  public void setUp() {
+    datastoreConfiguration.setUp();
+  }
+
+  @After
+  public void tearDown() {
+    datastoreConfiguration.tearDown();
+  }
+
+  @Test
+  public void testAdd_searchFindsCommentWithoutReloading() {
+    source.comments.add(comment(1, "Bob", "Nice photos", 100));
+    index.refreshIfStale(() -> INITIAL_VERSION, source);
+
+    index.add(comment(2, "Carl", "Great garden", 200), CHANGE);
+    index.refreshIfStale(() -> INITIAL_VERSION.after(CHANGE).get(), source);
+
+    assertEquals(Arrays.asList("Carl: Great garden"), index.search("garden", 10));
+    assertEquals(1, source.loadAllCount);
+    assertEquals(0, source.loadSinceCount);
+  }
+
+  @Test
+  public void testAdd_skipsCommentTheRebuildAlreadyLoaded() {
+    // The rebuild read the initial version but its query already saw the comment being added.
+    Entity twice = comment(1, "Bob", "nice nice", 100);
+    source.comments.add(twice);
+    source.comments.add(comment(2, "Sally", "nice nice nice", 200));
+    index.refreshIfStale(() -> INITIAL_VERSION, source);
+
+    index.add(twice, CHANGE);
+
+    // Counting the first comment's words twice would rank it above the second.
+    assertEquals(Arrays.asList("Sally: nice nice nice", "Bob: nice nice"),
+        index.search("nice", 10));
+  }
+
+  @Test
+  public void testRefreshIfStale_catchesUpOnCommentsPostedElsewhere() {
+    source.comments.add(comment(1, "Bob", "Nice photos", 100));
+    index.refreshIfStale(() -> INITIAL_VERSION, source);
+    // Another instance stores a comment.
+    source.comments.add(comment(2, "Carl", "Great garden", 200));
+
+    index.refreshIfStale(() -> INITIAL_VERSION.after(CHANGE).get(), source);
+
+    assertEquals(Arrays.asList("Carl: Great garden"), index.search("garden", 10));
+    assertEquals(1, source.loadAllCount);
+    assertEquals(1, source.loadSinceCount);
+  }
+
+  @Test
+  public void testRefreshIfStale_rebuildsWhenCommentsMayHaveBeenDeleted() {
+    source.comments.add(comment(1, "Bob", "Nice photos", 100));
+    index.refreshIfStale(() -> INITIAL_VERSION, source);
+    // Every comment is deleted, which bumps every shard, and then a new one is stored.
+    source.comments.clear();
+    source.comments.add(comment(2, "Carl", "Nice garden", 200));
+    long[] shardVersions = new long[NUM_COMMENT_COUNTER_SHARDS];
+    Arrays.fill(shardVersions, 1);
+
+    index.refreshIfStale(() -> new CommentVersion(shardVersions), source);
+
+    assertEquals(Arrays.asList("Carl: Nice garden"), index.search("nice", 10));
+    assertEquals(2, source.loadAllCount);
+  }
+
+  private static Entity comment(long id, String name, String text, long timestamp) {
+    Entity entity = CommentEntity.create(name, text, timestamp).toEntity();
+    Entity withKey = new Entity(KeyFactory.createKey(COMMENT_ENTITY_NAME, id));
+    withKey.setPropertiesFrom(entity);
+    return withKey;
+  }
+
+  /* Serves comments from a list and counts how often each kind of load is made */
+  private static final class FakeCommentSource implements CommentSearchIndex.CommentSource {
+    private final List<Entity> comments = new ArrayList<>();
+    private int loadAllCount;
+    private int loadSinceCount;
+
+    @Override
+    public Iterable<Entity> loadAll() {
+      loadAllCount++;
+      return new ArrayList<>(comments);
+    }
+
+    @Override
+    public Iterable<Entity> loadSince(long timestampMillis) {
+      loadSinceCount++;
+      return comments.stream()
+          .filter(comment -> (Long) comment.getProperty(COMMENT_TIMESTAMP_ID) >= timestampMillis)
+          .collect(Collectors.toList());
+    }
+
+    @Override
+    public long count() {
+      return comments.size();
+    }
+  }
+}
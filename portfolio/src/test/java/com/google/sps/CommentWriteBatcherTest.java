@@ -0,0 +1,117 @@
+package com.google.sps;
+
+import static com.google.sps.Constants.COMMENT_ENTITY_NAME;
+import static com.google.sps.Constants.MAX_COMMENTS_PER_TRANSACTION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.apphosting.api.ApiProxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CommentWriteBatcherTest {
+  private static final int BATCH_SIZE = 3;
+  // Long enough that only a full batch triggers a flush.
+  private static final long FLUSH_INTERVAL_MILLIS = 10000;
+
+  private DatastoreService ds;
+  private final LocalServiceTestHelper datastoreConfiguration =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+  @Before
+  public void setUp() {
+    datastoreConfiguration.setUp();
+    ds = DatastoreServiceFactory.getDatastoreService();
+  }
+
+  @After
+  public void tearDown() {
+    datastoreConfiguration.tearDown();
+  }
+
+  @Test
+  public void testPut_concurrentWritesShareOneBatch() throws Exception {
+    CommentWriteBatcher batcher = new CommentWriteBatcher(
+        new ShardedCommentCounter(ds), BATCH_SIZE, FLUSH_INTERVAL_MILLIS);
+    ApiProxy.Environment environment = ApiProxy.getCurrentEnvironment();
+    ExecutorService executor = Executors.newFixedThreadPool(BATCH_SIZE);
+    List<Future<?>> writes = new ArrayList<>();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      CommentEntity comment = CommentEntity.create("Bob", "Comment " + i);
+      writes.add(executor.submit(() -> {
+        ApiProxy.setEnvironmentForCurrentThread(environment);
+        batcher.put(comment.toEntity());
+        return null;
+      }));
+    }
+    for (Future<?> write : writes) {
+      write.get();
+    }
+    executor.shutdown();
+
+    assertEquals(BATCH_SIZE, ds.prepare(new Query(COMMENT_ENTITY_NAME)).countEntities(FetchOptions.Builder.withDefaults()));
+    assertEquals(BATCH_SIZE, new ShardedCommentCounter(ds).count());
+    assertEquals(1, batcher.batchesFlushed());
+    assertEquals(BATCH_SIZE, batcher.averageBatchSize(), 0);
+  }
+
+  @Test
+  public void testPut_writesBeyondOneTransactionAreSplitIntoBatches() throws Exception {
+    int numComments = 2 * MAX_COMMENTS_PER_TRANSACTION + 2;
+    CommentWriteBatcher batcher = new CommentWriteBatcher(new ShardedCommentCounter(ds),
+        MAX_COMMENTS_PER_TRANSACTION, /* flushIntervalMillis= */ 100);
+    ApiProxy.Environment environment = ApiProxy.getCurrentEnvironment();
+    ExecutorService executor = Executors.newFixedThreadPool(numComments);
+    List<Future<?>> writes = new ArrayList<>();
+    for (int i = 0; i < numComments; i++) {
+      CommentEntity comment = CommentEntity.create("Bob", "Comment " + i);
+      writes.add(executor.submit(() -> {
+        ApiProxy.setEnvironmentForCurrentThread(environment);
+        batcher.put(comment.toEntity());
+        return null;
+      }));
+    }
+    for (Future<?> write : writes) {
+      write.get();
+    }
+    executor.shutdown();
+
+    // Every batch was stored in a single transaction, so none held more than one can.
+    assertEquals(numComments, ds.prepare(new Query(COMMENT_ENTITY_NAME)).countEntities(FetchOptions.Builder.withDefaults()));
+    assertEquals(numComments, new ShardedCommentCounter(ds).count());
+    assertEquals(numComments, batcher.entitiesFlushed());
+    assertTrue(batcher.batchesFlushed() >= 3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_rejectsBatchesLargerThanOneTransaction() {
+    new CommentWriteBatcher(new ShardedCommentCounter(ds), MAX_COMMENTS_PER_TRANSACTION + 1,
+        FLUSH_INTERVAL_MILLIS);
+  }
+
+  @Test
+  public void testPut_partialBatchIsFlushedAfterInterval() throws Exception {
+    CommentWriteBatcher batcher = new CommentWriteBatcher(
+        new ShardedCommentCounter(ds), BATCH_SIZE, /* flushIntervalMillis= */ 1);
+
+    batcher.put(CommentEntity.create("Bob", "Nice").toEntity());
+
+    assertEquals(1, ds.prepare(new Query(COMMENT_ENTITY_NAME)).countEntities(FetchOptions.Builder.withDefaults()));
+    assertEquals(1, batcher.batchesFlushed());
+  }
+}
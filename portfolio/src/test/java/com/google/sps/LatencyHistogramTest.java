@@ -0,0 +1,44 @@
+package com.google.sps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LatencyHistogramTest {
+
+  @Test
+  public void testPercentileMicros_emptyHistogramReturnsZero() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    assertEquals(0, histogram.percentileMicros(50));
+  }
+
+  @Test
+  public void testPercentileMicros_smallValuesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int micros = 1; micros <= 10; micros++) {
+      histogram.recordMicros(micros);
+    }
+
+    assertEquals(5, histogram.percentileMicros(50));
+    assertEquals(9, histogram.percentileMicros(90));
+    assertEquals(10, histogram.maxMicros());
+    assertEquals(55, histogram.sumMicros());
+  }
+
+  @Test
+  public void testPercentileMicros_largeValuesAreWithinBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.recordMicros(i * 1000L);
+    }
+
+    long p99 = histogram.percentileMicros(99);
+    assertTrue("p99 was " + p99, Math.abs(p99 - 990000) <= 990000 * 0.035);
+    assertEquals(1000000, histogram.maxMicros());
+  }
+}
@@ -0,0 +1,85 @@
+package com.google.sps;
+
+import static com.google.sps.Constants.REQUEST_COMMENT_PARAM;
+import static com.google.sps.Constants.REQUEST_NAME_PARAM;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+@RunWith(JUnit4.class)
+public class CommentCountServletTest {
+
+  @Mock HttpServletRequest request;
+  @Mock HttpServletResponse response;
+
+  private CommentCountServlet commentCountServlet;
+  private DataServlet dataServlet;
+  private DeletionDataServlet deletionDataServlet;
+  private StringWriter stringWriter;
+  private final LocalServiceTestHelper datastoreConfiguration =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+  @Before
+  public void setUp() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    datastoreConfiguration.setUp();
+    commentCountServlet = new CommentCountServlet();
+    commentCountServlet.init();
+    dataServlet = new DataServlet();
+    dataServlet.init();
+    deletionDataServlet = new DeletionDataServlet();
+    deletionDataServlet.init();
+    stringWriter = new StringWriter();
+    when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+  }
+
+  @After
+  public void tearDown() {
+    datastoreConfiguration.tearDown();
+  }
+
+  @Test
+  public void testCommentCountServlet_doGet_returnsZeroWithNoComments() throws Exception {
+    commentCountServlet.doGet(request, response);
+
+    assertEquals(stringWriter.getBuffer().toString().trim(), "{\"count\":0}");
+  }
+
+  @Test
+  public void testCommentCountServlet_doGet_countsPostedComments() throws Exception {
+    when(request.getParameter(REQUEST_NAME_PARAM)).thenReturn("Bob");
+    when(request.getParameter(REQUEST_COMMENT_PARAM)).thenReturn("Nice");
+    for (int i = 0; i < 3; i++) {
+      dataServlet.doPost(request, response);
+    }
+
+    commentCountServlet.doGet(request, response);
+
+    assertEquals(stringWriter.getBuffer().toString().trim(), "{\"count\":3}");
+  }
+
+  @Test
+  public void testCommentCountServlet_doGet_returnsZeroAfterDeletingAllComments() throws Exception {
+    when(request.getParameter(REQUEST_NAME_PARAM)).thenReturn("Bob");
+    when(request.getParameter(REQUEST_COMMENT_PARAM)).thenReturn("Nice");
+    dataServlet.doPost(request, response);
+    deletionDataServlet.doPost(request, response);
+
+    commentCountServlet.doGet(request, response);
+
+    assertEquals(stringWriter.getBuffer().toString().trim(), "{\"count\":0}");
+  }
+}
@@ -4,10 +4,18 @@ import static com.google.appengine.api.datastore.FetchOptions.Builder.withLimit;
 import static com.google.sps.Constants.COMMENT_ENTITY_NAME;
 import static com.google.sps.Constants.COMMENT_NAME_ID;
 import static com.google.sps.Constants.COMMENT_TEXT_ID;
+import static com.google.sps.Constants.DELETE_BATCH_SIZE;
+import static com.google.sps.Constants.MAX_CACHED_COMMENTS;
+import static com.google.sps.Constants.REQUEST_ASYNC_PARAM;
 import static com.google.sps.Constants.REQUEST_COMMENT_PARAM;
+import static com.google.sps.Constants.REQUEST_CURSOR_PARAM;
 import static com.google.sps.Constants.REQUEST_NAME_PARAM;
 import static com.google.sps.Constants.REQUEST_NUM_COMMENTS_PARAM;
+import static com.google.sps.Constants.REQUEST_PAGE_SIZE_PARAM;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
  
 import com.google.appengine.api.datastore.DatastoreService;
@@ -17,11 +25,21 @@ import com.google.appengine.api.datastore.FetchOptions;
 import com.google.appengine.api.datastore.Query;
 import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
 import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import com.google.apphosting.api.ApiProxy;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.sps.CommentCache;
 import com.google.sps.CommentEntity;
+import com.google.sps.ShardedCommentCounter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -54,6 +72,7 @@ public class DataServletTest {
     stringWriter = new StringWriter();
     datastoreConfiguration.setUp();
     ds = DatastoreServiceFactory.getDatastoreService();
+    CommentCache.getInstance().invalidate();
   }
  
   @After
@@ -121,6 +140,238 @@ public class DataServletTest {
     "[\"Bob: Nice\",\"Bob: Nice\",\"Bob: Nice\",\"Bob: Nice\",\"Bob: Nice\",\"Bob: Nice\",\"Bob: Nice\",\"Bob: Nice\",\"Bob: Nice\",\"Bob: Nice\",\"Bob: Nice\",\"Bob: Nice\"]");
   }
  
+  /* Requests larger than the cache are streamed straight from Datastore */
+  @Test
+  public void testDataServlet_doGet_streamsCommentsBeyondCacheCapacity() throws Exception {
+    ds.put(CommentEntity.create("Bob", "Nice").toEntity());
+    ds.put(CommentEntity.create("Sally", "<b>Bold</b>").toEntity());
+    when(request.getParameter(REQUEST_NUM_COMMENTS_PARAM)).thenReturn(String.valueOf(MAX_CACHED_COMMENTS + 1));
+    when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+ 
+    dataServlet.doGet(request, response);
+ 
+    assertEquals(stringWriter.getBuffer().toString().trim(), "[\"Bob: Nice\",\"Sally: \\u003cb\\u003eBold\\u003c/b\\u003e\"]");
+  }
+ 
+  @Test
+  public void testDataServlet_doGet_setsETag() throws Exception {
+    when(request.getParameter(REQUEST_NUM_COMMENTS_PARAM)).thenReturn("5");
+    when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+ 
+    dataServlet.doGet(request, response);
+ 
+    verify(response).setHeader("ETag", new ShardedCommentCounter(ds).version().etag());
+  }
+ 
+  @Test
+  public void testDataServlet_doGet_returnsNotModifiedForCurrentETag() throws Exception {
+    when(request.getParameter(REQUEST_NUM_COMMENTS_PARAM)).thenReturn("5");
+    when(request.getHeader("If-None-Match")).thenReturn(new ShardedCommentCounter(ds).version().etag());
+ 
+    dataServlet.doGet(request, response);
+ 
+    verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    verify(response, never()).getWriter();
+  }
+ 
+  @Test
+  public void testDataServlet_doGet_returnsCommentsForETagBeforePost() throws Exception {
+    String staleETag = new ShardedCommentCounter(ds).version().etag();
+    when(request.getParameter(REQUEST_NAME_PARAM)).thenReturn("Alice");
+    when(request.getParameter(REQUEST_COMMENT_PARAM)).thenReturn("New");
+    dataServlet.doPost(request, response);
+    when(request.getParameter(REQUEST_NUM_COMMENTS_PARAM)).thenReturn("5");
+    when(request.getHeader("If-None-Match")).thenReturn(staleETag);
+    when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+ 
+    dataServlet.doGet(request, response);
+ 
+    verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    assertEquals(stringWriter.getBuffer().toString().trim(), "[\"Alice: New\"]");
+  }
+ 
+  @Test
+  public void testDataServlet_doGet_returnsCommentsAfterPostOnAnotherInstance() throws Exception {
+    String staleETag = new ShardedCommentCounter(ds).version().etag();
+    // Another instance stores comments through its own counter, without touching this servlet.
+    new ShardedCommentCounter(ds).putComments(Arrays.asList(CommentEntity.create("Bob", "Remote").toEntity()));
+    when(request.getParameter(REQUEST_NUM_COMMENTS_PARAM)).thenReturn("5");
+    when(request.getHeader("If-None-Match")).thenReturn(staleETag);
+    when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+
+    dataServlet.doGet(request, response);
+
+    verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    assertEquals(stringWriter.getBuffer().toString().trim(), "[\"Bob: Remote\"]");
+  }
+ 
+  @Test
+  public void testDataServlet_doGet_pageReturnsNewestCommentsFirstWithCursor() throws Exception {
+    ds.put(CommentEntity.create("Bob", "First", 1L).toEntity());
+    ds.put(CommentEntity.create("Sally", "Second", 2L).toEntity());
+    ds.put(CommentEntity.create("Alice", "Third", 3L).toEntity());
+    when(request.getParameter(REQUEST_PAGE_SIZE_PARAM)).thenReturn("2");
+    when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+ 
+    dataServlet.doGet(request, response);
+ 
+    JsonObject page = JsonParser.parseString(stringWriter.toString()).getAsJsonObject();
+    assertEquals("[\"Alice: Third\",\"Sally: Second\"]", page.get("comments").toString());
+    assertFalse(page.get("cursor").getAsString().isEmpty());
+  }
+ 
+  @Test
+  public void testDataServlet_doGet_pageWithCursorReturnsNextPage() throws Exception {
+    ds.put(CommentEntity.create("Bob", "First", 1L).toEntity());
+    ds.put(CommentEntity.create("Sally", "Second", 2L).toEntity());
+    ds.put(CommentEntity.create("Alice", "Third", 3L).toEntity());
+    when(request.getParameter(REQUEST_PAGE_SIZE_PARAM)).thenReturn("2");
+    when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+    dataServlet.doGet(request, response);
+    String cursor = JsonParser.parseString(stringWriter.toString()).getAsJsonObject().get("cursor").getAsString();
+    StringWriter nextPageWriter = new StringWriter();
+    when(request.getParameter(REQUEST_CURSOR_PARAM)).thenReturn(cursor);
+    when(response.getWriter()).thenReturn(new PrintWriter(nextPageWriter));
+ 
+    dataServlet.doGet(request, response);
+ 
+    assertEquals(nextPageWriter.getBuffer().toString().trim(), "{\"comments\":[\"Bob: First\"]}");
+  }
+ 
+  @Test
+  public void testDataServlet_doGet_pageWithInvalidCursorReturnsBadRequest() throws Exception {
+    when(request.getParameter(REQUEST_PAGE_SIZE_PARAM)).thenReturn("2");
+    when(request.getParameter(REQUEST_CURSOR_PARAM)).thenReturn("not-a-cursor");
+ 
+    dataServlet.doGet(request, response);
+ 
+    verify(response).sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid cursor");
+  }
+ 
+  @Test
+  public void testDataServlet_doGet_repeatedRequestIsServedFromCache() throws Exception {
+    ds.put(CommentEntity.create("Bob", "Nice").toEntity());
+    when(request.getParameter(REQUEST_NUM_COMMENTS_PARAM)).thenReturn("5");
+    when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+    dataServlet.doGet(request, response);
+    long hitsBefore = CommentCache.getInstance().hitCount();
+    // Written behind the servlet's back, so only a Datastore query would see it.
+    ds.put(CommentEntity.create("Sally", "Hidden").toEntity());
+    when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+ 
+    dataServlet.doGet(request, response);
+ 
+    assertEquals(stringWriter.getBuffer().toString().trim(), "[\"Bob: Nice\"]");
+    assertEquals(hitsBefore + 1, CommentCache.getInstance().hitCount());
+  }
+ 
+  @Test
+  public void testDataServlet_doPost_writesThroughToCache() throws Exception {
+    when(request.getParameter(REQUEST_NUM_COMMENTS_PARAM)).thenReturn("5");
+    when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+    dataServlet.doGet(request, response);
+    when(request.getParameter(REQUEST_NAME_PARAM)).thenReturn("Alice");
+    when(request.getParameter(REQUEST_COMMENT_PARAM)).thenReturn("Cached");
+    dataServlet.doPost(request, response);
+    long hitsBefore = CommentCache.getInstance().hitCount();
+    when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+ 
+    dataServlet.doGet(request, response);
+ 
+    assertEquals(stringWriter.getBuffer().toString().trim(), "[\"Alice: Cached\"]");
+    assertEquals(hitsBefore + 1, CommentCache.getInstance().hitCount());
+  }
+ 
+  @Test
+  public void testDataServlet_doGet_cacheMissesAfterPostOnAnotherInstance() throws Exception {
+    ds.put(CommentEntity.create("Bob", "Nice").toEntity());
+    when(request.getParameter(REQUEST_NUM_COMMENTS_PARAM)).thenReturn("5");
+    when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+    dataServlet.doGet(request, response);
+    // Another instance stores a comment, which changes the shared version but not this cache.
+    new ShardedCommentCounter(ds).putComments(Arrays.asList(CommentEntity.create("Sally", "Remote").toEntity()));
+    when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+
+    dataServlet.doGet(request, response);
+
+    assertEquals(stringWriter.getBuffer().toString().trim(), "[\"Bob: Nice\",\"Sally: Remote\"]");
+  }
+ 
+  @Test
+  public void testDeletionDataServlet_doPost_invalidatesCache() throws Exception {
+    DeletionDataServlet deletionDataServlet = new DeletionDataServlet();
+    deletionDataServlet.init();
+    ds.put(CommentEntity.create("Bob", "Nice").toEntity());
+    when(request.getParameter(REQUEST_NUM_COMMENTS_PARAM)).thenReturn("5");
+    when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+    dataServlet.doGet(request, response);
+ 
+    deletionDataServlet.doPost(request, response);
+    when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+    dataServlet.doGet(request, response);
+ 
+    assertEquals(stringWriter.getBuffer().toString().trim(), "[]");
+  }
+ 
+  @Test
+  public void testDeletionDataServlet_doPost_deletesMoreThanOneBatch() throws Exception {
+    DeletionDataServlet deletionDataServlet = new DeletionDataServlet();
+    deletionDataServlet.init();
+    List<Entity> entities = new ArrayList<>();
+    for (int i = 0; i < DELETE_BATCH_SIZE + 1; i++) {
+      entities.add(CommentEntity.create("Bob", "Nice").toEntity());
+    }
+    ds.put(entities);
+ 
+    deletionDataServlet.doPost(request, response);
+ 
+    assertEquals(0, ds.prepare(new Query(COMMENT_ENTITY_NAME)).countEntities(FetchOptions.Builder.withDefaults()));
+  }
+ 
+  @Test
+  public void testDeletionDataServlet_doPost_deletesAsynchronously() throws Exception {
+    DeletionDataServlet deletionDataServlet = new DeletionDataServlet();
+    deletionDataServlet.init();
+    ds.put(CommentEntity.create("Bob", "Nice").toEntity());
+    ds.put(CommentEntity.create("Sally", "This is a test comment").toEntity());
+    when(request.getParameter(REQUEST_ASYNC_PARAM)).thenReturn("true");
+ 
+    deletionDataServlet.doPost(request, response);
+ 
+    assertEquals(0, ds.prepare(new Query(COMMENT_ENTITY_NAME)).countEntities(FetchOptions.Builder.withDefaults()));
+  }
+ 
+  @Test
+  public void testDeletionDataServlet_doPost_concurrentDeletesLeaveCountAtZero() throws Exception {
+    DeletionDataServlet deletionDataServlet = new DeletionDataServlet();
+    deletionDataServlet.init();
+    ShardedCommentCounter counter = new ShardedCommentCounter(ds);
+    for (int i = 0; i < 3; i++) {
+      counter.putComments(Arrays.asList(CommentEntity.create("Bob", "Nice").toEntity(),
+          CommentEntity.create("Sally", "Counted").toEntity()));
+    }
+    // Stored before the counter existed, so never counted.
+    ds.put(CommentEntity.create("Alice", "Uncounted").toEntity());
+    ApiProxy.Environment environment = ApiProxy.getCurrentEnvironment();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    List<Future<?>> deletes = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      deletes.add(executor.submit(() -> {
+        ApiProxy.setEnvironmentForCurrentThread(environment);
+        deletionDataServlet.doPost(request, response);
+        return null;
+      }));
+    }
+    for (Future<?> delete : deletes) {
+      delete.get();
+    }
+    executor.shutdown();
+
+    assertEquals(0, counter.count());
+    counter.putComments(Arrays.asList(CommentEntity.create("Bob", "After").toEntity()));
+    assertEquals(1, counter.count());
+  }
+ 
   @Test
   public void testDataServlet_doPost_postsSingleComment() throws Exception {
     String commentName = "Alice";
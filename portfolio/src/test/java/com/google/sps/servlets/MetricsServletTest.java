@@ -0,0 +1,121 @@
+package com.google.sps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRegistration;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+@RunWith(JUnit4.class)
+public class MetricsServletTest {
+  // A path no other test records, since the metrics are shared.
+  private static final String PATH = "/metrics-test";
+
+  @Mock HttpServletRequest request;
+  @Mock HttpServletResponse response;
+  @Mock FilterConfig filterConfig;
+  @Mock ServletContext servletContext;
+  @Mock ServletRegistration servletRegistration;
+
+  private MetricsFilter metricsFilter;
+  private MetricsServlet metricsServlet;
+  private StringWriter stringWriter;
+
+  @Before
+  public void setUp() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    metricsFilter = new MetricsFilter();
+    when(filterConfig.getServletContext()).thenReturn(servletContext);
+    doReturn(Collections.singletonMap("servlet", servletRegistration))
+        .when(servletContext).getServletRegistrations();
+    when(servletRegistration.getMappings()).thenReturn(Arrays.asList(PATH, "/", "/static/*"));
+    metricsFilter.init(filterConfig);
+    metricsServlet = new MetricsServlet();
+    metricsServlet.init();
+    stringWriter = new StringWriter();
+    when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+  }
+
+  @Test
+  public void testMetricsFilter_recordsStatusAndBytes() throws Exception {
+    when(request.getServletPath()).thenReturn(PATH);
+    when(response.getStatus()).thenReturn(HttpServletResponse.SC_OK);
+    when(response.getCharacterEncoding()).thenReturn("UTF-8");
+
+    metricsFilter.doFilter(request, response, (req, res) -> res.getWriter().print("héllo"));
+
+    RequestMetrics.PathMetrics metrics = RequestMetrics.getInstance().snapshot().get(PATH);
+    assertEquals(1, metrics.latency().count());
+    assertEquals(Long.valueOf(1), metrics.statusCounts().get(HttpServletResponse.SC_OK));
+    assertEquals(6, metrics.bytes());
+  }
+
+  @Test
+  public void testMetricsFilter_unknownPathsShareOneEntry() throws Exception {
+    when(response.getStatus()).thenReturn(HttpServletResponse.SC_NOT_FOUND);
+    metricsFilter.doFilter(request, response, (req, res) -> {});
+    int numPaths = RequestMetrics.getInstance().snapshot().size();
+
+    for (int i = 0; i < 1000; i++) {
+      when(request.getServletPath()).thenReturn("/no-such-page-" + i);
+      metricsFilter.doFilter(request, response, (req, res) -> {});
+    }
+
+    assertEquals(numPaths, RequestMetrics.getInstance().snapshot().size());
+    assertTrue(RequestMetrics.getInstance().snapshot().get("other").latency().count() >= 1001);
+  }
+
+  @Test
+  public void testMetricsServlet_doGet_reportsPathAsJson() throws Exception {
+    RequestMetrics.getInstance().record(PATH + "/json", 2000, HttpServletResponse.SC_OK, 10);
+
+    metricsServlet.doGet(request, response);
+
+    JsonObject path = JsonParser.parseString(stringWriter.toString()).getAsJsonObject()
+        .getAsJsonObject("paths").getAsJsonObject(PATH + "/json");
+    assertEquals(1, path.get("requests").getAsLong());
+    assertEquals(2.0, path.getAsJsonObject("latencyMillis").get("max").getAsDouble(), 0);
+    assertEquals(1, path.getAsJsonObject("status").get("200").getAsLong());
+  }
+
+  @Test
+  public void testMetricsServlet_doGet_reportsWhetherWritesAreGroupCommitted() throws Exception {
+    metricsServlet.doGet(request, response);
+
+    JsonObject commentWrites = JsonParser.parseString(stringWriter.toString()).getAsJsonObject()
+        .getAsJsonObject("commentWrites");
+    assertEquals(CommentWriteBatcher.getInstance().isPresent(),
+        commentWrites.get("groupCommit").getAsBoolean());
+  }
+
+  @Test
+  public void testMetricsServlet_doGet_reportsPrometheusText() throws Exception {
+    RequestMetrics.getInstance().record(PATH + "/prometheus", 2000, HttpServletResponse.SC_NOT_FOUND, 10);
+    when(request.getParameter("format")).thenReturn("prometheus");
+
+    metricsServlet.doGet(request, response);
+
+    String text = stringWriter.toString();
+    assertTrue(text, text.contains(
+        "portfolio_responses_total{path=\"" + PATH + "/prometheus\",code=\"404\"} 1"));
+    assertTrue(text, text.contains(
+        "portfolio_request_latency_seconds_count{path=\"" + PATH + "/prometheus\"} 1"));
+  }
+}
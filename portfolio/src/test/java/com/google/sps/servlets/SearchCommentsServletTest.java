@@ -0,0 +1,129 @@
+package com.google.sps;
+
+import static com.google.sps.Constants.REQUEST_COMMENT_PARAM;
+import static com.google.sps.Constants.REQUEST_NAME_PARAM;
+import static com.google.sps.Constants.REQUEST_SEARCH_QUERY_PARAM;
+import static com.google.sps.Constants.SEARCH_INDEX_VERSION_CHECK_INTERVAL_MILLIS;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.tools.development.testing.LocalDatastoreServiceTestConfig;
+import com.google.appengine.tools.development.testing.LocalServiceTestHelper;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+@RunWith(JUnit4.class)
+public class SearchCommentsServletTest {
+
+  @Mock HttpServletRequest request;
+  @Mock HttpServletResponse response;
+
+  private SearchCommentsServlet searchCommentsServlet;
+  private StringWriter stringWriter;
+  private DatastoreService ds;
+  private final LocalServiceTestHelper datastoreConfiguration =
+      new LocalServiceTestHelper(new LocalDatastoreServiceTestConfig());
+
+  @Before
+  public void setUp() throws Exception {
+    MockitoAnnotations.initMocks(this);
+    datastoreConfiguration.setUp();
+    ds = DatastoreServiceFactory.getDatastoreService();
+    ds.put(CommentEntity.create("Bob", "Nice photos of the bridge").toEntity());
+    ds.put(CommentEntity.create("Sally", "Nice nice NICE!").toEntity());
+    ds.put(CommentEntity.create("Alice", "The bridge at night").toEntity());
+    // The index is shared, and every test's Datastore starts again from the same version.
+    CommentSearchIndex.getInstance().clear();
+    searchCommentsServlet = new SearchCommentsServlet();
+    searchCommentsServlet.init();
+    stringWriter = new StringWriter();
+    when(response.getWriter()).thenReturn(new PrintWriter(stringWriter));
+  }
+
+  @After
+  public void tearDown() {
+    datastoreConfiguration.tearDown();
+  }
+
+  @Test
+  public void testSearchCommentsServlet_doGet_ranksByTermFrequency() throws Exception {
+    when(request.getParameter(REQUEST_SEARCH_QUERY_PARAM)).thenReturn("nice");
+
+    searchCommentsServlet.doGet(request, response);
+
+    assertEquals(stringWriter.getBuffer().toString().trim(),
+        "[\"Sally: Nice nice NICE!\",\"Bob: Nice photos of the bridge\"]");
+  }
+
+  @Test
+  public void testSearchCommentsServlet_doGet_requiresEveryWord() throws Exception {
+    when(request.getParameter(REQUEST_SEARCH_QUERY_PARAM)).thenReturn("Bridge nice");
+
+    searchCommentsServlet.doGet(request, response);
+
+    assertEquals(stringWriter.getBuffer().toString().trim(), "[\"Bob: Nice photos of the bridge\"]");
+  }
+
+  @Test
+  public void testSearchCommentsServlet_doGet_matchesNames() throws Exception {
+    when(request.getParameter(REQUEST_SEARCH_QUERY_PARAM)).thenReturn("alice");
+
+    searchCommentsServlet.doGet(request, response);
+
+    assertEquals(stringWriter.getBuffer().toString().trim(), "[\"Alice: The bridge at night\"]");
+  }
+
+  @Test
+  public void testSearchCommentsServlet_doGet_findsPostedComment() throws Exception {
+    DataServlet dataServlet = new DataServlet();
+    dataServlet.init();
+    when(request.getParameter(REQUEST_NAME_PARAM)).thenReturn("Carl");
+    when(request.getParameter(REQUEST_COMMENT_PARAM)).thenReturn("Great garden");
+    dataServlet.doPost(request, response);
+    when(request.getParameter(REQUEST_SEARCH_QUERY_PARAM)).thenReturn("garden");
+
+    searchCommentsServlet.doGet(request, response);
+
+    assertEquals(stringWriter.getBuffer().toString().trim(), "[\"Carl: Great garden\"]");
+  }
+
+  @Test
+  public void testSearchCommentsServlet_doGet_findsCommentPostedOnAnotherInstance() throws Exception {
+    when(request.getParameter(REQUEST_SEARCH_QUERY_PARAM)).thenReturn("garden");
+    searchCommentsServlet.doGet(request, response);
+    // Another instance stores a comment, which changes the shared version but not this index.
+    new ShardedCommentCounter(ds).putComments(
+        Arrays.asList(CommentEntity.create("Carl", "Great garden").toEntity()));
+    // Searches only compare the index with the shared version once per interval.
+    Thread.sleep(SEARCH_INDEX_VERSION_CHECK_INTERVAL_MILLIS);
+    stringWriter.getBuffer().setLength(0);
+
+    searchCommentsServlet.doGet(request, response);
+
+    assertEquals(stringWriter.getBuffer().toString().trim(), "[\"Carl: Great garden\"]");
+  }
+
+  @Test
+  public void testSearchCommentsServlet_doGet_findsNothingAfterDeletingAllComments() throws Exception {
+    DeletionDataServlet deletionDataServlet = new DeletionDataServlet();
+    deletionDataServlet.init();
+    deletionDataServlet.doPost(request, response);
+    when(request.getParameter(REQUEST_SEARCH_QUERY_PARAM)).thenReturn("nice");
+
+    searchCommentsServlet.doGet(request, response);
+
+    assertEquals(stringWriter.getBuffer().toString().trim(), "[]");
+  }
+}
@@ -0,0 +1,124 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures every {@link FindMeetingQuery} engine on the same synthetic calendar. Each invocation
+ * answers the next of a fixed set of requests, so the JIT can't specialize on one request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindMeetingQueryBenchmark {
+  private static final long SEED = 42;
+  private static final int NUM_REQUESTS = 1024;
+
+  @Param({"10", "1000", "100000", "1000000"})
+  private int numEvents;
+
+  @Param({"1000"})
+  private int orgSize;
+
+  @Param({"4"})
+  private int attendeesPerEvent;
+
+  @Param({"3", "30"})
+  private int requestSize;
+
+  @Param({"30"})
+  private int duration;
+
+  private final FindMeetingQuery query = new FindMeetingQuery();
+  // Merges every request's busy intervals in parallel, whatever its size.
+  private final FindMeetingQuery parallelQuery =
+      new FindMeetingQuery(ForkJoinPool.commonPool(), /* parallelThreshold= */ 1);
+  private List<Event> events;
+  private EventIndex index;
+  private EventStore store;
+  private EventTable table;
+  private DayBitmapIndex bitmap;
+  private MeetingRequest[] requests;
+  private int nextRequest;
+
+  @Setup
+  public void setUp() {
+    events = SyntheticCalendar.events(SEED, numEvents, orgSize, attendeesPerEvent);
+    index = new EventIndex(events);
+    store = new EventStore(events);
+    table = new EventTable(events);
+    bitmap = new DayBitmapIndex(events);
+    requests = SyntheticCalendar.requests(SEED, NUM_REQUESTS, orgSize, requestSize, duration)
+        .toArray(new MeetingRequest[0]);
+  }
+
+  private MeetingRequest nextRequest() {
+    nextRequest = (nextRequest + 1) & (NUM_REQUESTS - 1);
+    return requests[nextRequest];
+  }
+
+  /** The plain entry point, which indexes the events again for every request. */
+  @Benchmark
+  public Object query() {
+    return query.query(events, nextRequest());
+  }
+
+  @Benchmark
+  public Object queryEventIndex() {
+    return query.query(index, nextRequest());
+  }
+
+  @Benchmark
+  public Object queryEventIndexParallel() {
+    return parallelQuery.query(index, nextRequest());
+  }
+
+  @Benchmark
+  public Object queryEventStore() {
+    return query.query(store, nextRequest());
+  }
+
+  @Benchmark
+  public Object queryEventTable() {
+    return query.query(table, nextRequest());
+  }
+
+  @Benchmark
+  public Object queryDayBitmap() {
+    return query.query(bitmap, nextRequest());
+  }
+
+  @Benchmark
+  public Object queryMaximizingOptionalAttendees() {
+    return query.queryMaximizingOptionalAttendees(index, nextRequest());
+  }
+}
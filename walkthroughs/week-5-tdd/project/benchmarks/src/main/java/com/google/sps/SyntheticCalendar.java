@@ -0,0 +1,87 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates reproducible calendars and meeting requests for the benchmarks. Everything is drawn
+ * from a seeded {@link Random}, so the same parameters always give the same workload and results
+ * can be compared between runs.
+ */
+final class SyntheticCalendar {
+  // Events start on five minute boundaries and last a multiple of fifteen minutes.
+  private static final int START_GRANULARITY = 5;
+  private static final int DURATION_GRANULARITY = 15;
+  private static final int MAX_EVENT_DURATION = 2 * 60;
+
+  private SyntheticCalendar() {}
+
+  /**
+   * Returns {@code numEvents} events during one day, each attended by {@code attendeesPerEvent}
+   * distinct people out of an organization of {@code orgSize}.
+   */
+  static List<Event> events(long seed, int numEvents, int orgSize, int attendeesPerEvent) {
+    Random random = new Random(seed);
+    List<Event> events = new ArrayList<>(numEvents);
+    for (int i = 0; i < numEvents; i++) {
+      int duration =
+          DURATION_GRANULARITY * (1 + random.nextInt(MAX_EVENT_DURATION / DURATION_GRANULARITY));
+      int latestStart = (TimeRange.WHOLE_DAY.duration() - duration) / START_GRANULARITY;
+      int start = START_GRANULARITY * random.nextInt(latestStart + 1);
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, duration),
+          people(random, orgSize, attendeesPerEvent)));
+    }
+    return events;
+  }
+
+  /**
+   * Returns {@code numRequests} meeting requests for {@code requestSize} people out of an
+   * organization of {@code orgSize}. About a third of each request's people are optional.
+   */
+  static List<MeetingRequest> requests(long seed, int numRequests, int orgSize, int requestSize,
+      int duration) {
+    Random random = new Random(seed);
+    List<MeetingRequest> requests = new ArrayList<>(numRequests);
+    for (int i = 0; i < numRequests; i++) {
+      List<String> people = new ArrayList<>(people(random, orgSize, requestSize));
+      int numMandatory = Math.max(1, requestSize - requestSize / 3);
+      MeetingRequest request =
+          new MeetingRequest(ImmutableSet.copyOf(people.subList(0, numMandatory)), duration);
+      for (String person : people.subList(numMandatory, people.size())) {
+        request.addOptionalAttendee(person);
+      }
+      requests.add(request);
+    }
+    return requests;
+  }
+
+  private static Set<String> people(Random random, int orgSize, int count) {
+    Set<String> people = new HashSet<>();
+    while (people.size() < Math.min(count, orgSize)) {
+      people.add(person(random.nextInt(orgSize)));
+    }
+    return people;
+  }
+
+  private static String person(int id) {
+    return "Person " + id;
+  }
+}
@@ -0,0 +1,95 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns attendee names to dense integer ids, starting from 0, so that sets of attendees can be
+ * stored and compared as {@link AttendeeSet}s instead of sets of strings. Thread-safe.
+ */
+public final class AttendeeRegistry {
+  private final Map<String, Integer> idsByName = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+
+  /**
+   * Returns the id of {@code name}, giving it the next unused id if it doesn't have one yet.
+   */
+  public synchronized int intern(String name) {
+    Integer id = idsByName.get(name);
+    if (id == null) {
+      id = names.size();
+      idsByName.put(name, id);
+      names.add(name);
+    }
+    return id;
+  }
+
+  /**
+   * Returns the id of {@code name}, or -1 if it has not been interned.
+   */
+  public synchronized int id(String name) {
+    return idsByName.getOrDefault(name, -1);
+  }
+
+  /**
+   * Returns the name that was interned as {@code id}.
+   */
+  public synchronized String name(int id) {
+    return names.get(id);
+  }
+
+  /**
+   * Returns the number of interned names.
+   */
+  public synchronized int size() {
+    return names.size();
+  }
+
+  /**
+   * Returns the set of ids for {@code names}, interning any that don't have one yet. Use for the
+   * attendees of stored events.
+   */
+  public synchronized AttendeeSet intern(Collection<String> names) {
+    int[] ids = new int[names.size()];
+    int i = 0;
+    for (String name : names) {
+      ids[i++] = intern(name);
+    }
+    return AttendeeSet.of(ids);
+  }
+
+  /**
+   * Returns the set of ids for the {@code names} that have been interned and leaves out the rest.
+   * Use for the attendees of a meeting request, so that names nobody has an event with don't grow
+   * the registry.
+   */
+  public synchronized AttendeeSet lookup(Collection<String> names) {
+    int[] ids = new int[names.size()];
+    int known = 0;
+    for (String name : names) {
+      Integer id = idsByName.get(name);
+      if (id != null) {
+        ids[known++] = id;
+      }
+    }
+    return AttendeeSet.of(Arrays.copyOf(ids, known));
+  }
+}
@@ -0,0 +1,141 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+
+/**
+ * A read-only set of attendee ids handed out by an {@link AttendeeRegistry}. Sets where the ids
+ * are close together are stored as a bitset, so two of them overlap exactly when some pair of
+ * words ANDs to non-zero. Sparse sets, e.g. a handful of people out of thousands, are stored as a
+ * sorted array of ids instead so that they stay small.
+ */
+public final class AttendeeSet {
+  public static final AttendeeSet EMPTY = new AttendeeSet(null, new int[0], 0);
+
+  // Exactly one of words and ids is non-null.
+  private final long[] words;
+  private final int[] ids;
+  private final int size;
+
+  private AttendeeSet(long[] words, int[] ids, int size) {
+    this.words = words;
+    this.ids = ids;
+    this.size = size;
+  }
+
+  /**
+   * Creates a set holding {@code ids}, which must not be negative. Duplicates are ignored.
+   */
+  public static AttendeeSet of(int... ids) {
+    int[] sorted = ids.clone();
+    Arrays.sort(sorted);
+    int size = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (sorted[i] < 0) {
+        throw new IllegalArgumentException("Attendee ids cannot be negative.");
+      }
+      if (size == 0 || sorted[size - 1] != sorted[i]) {
+        sorted[size++] = sorted[i];
+      }
+    }
+    if (size == 0) {
+      return EMPTY;
+    }
+
+    // A bitset takes one long for every 64 possible ids, and a sorted array takes one int per id.
+    int wordCount = (sorted[size - 1] >>> 6) + 1;
+    if (wordCount * 2 > size) {
+      return new AttendeeSet(null, Arrays.copyOf(sorted, size), size);
+    }
+    long[] words = new long[wordCount];
+    for (int i = 0; i < size; i++) {
+      words[sorted[i] >>> 6] |= 1L << sorted[i];
+    }
+    return new AttendeeSet(words, null, size);
+  }
+
+  /**
+   * Returns the number of attendees in the set.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns true if the set has no attendees.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns true if {@code id} is in the set.
+   */
+  public boolean contains(int id) {
+    if (words != null) {
+      return id >= 0 && (id >>> 6) < words.length && (words[id >>> 6] & (1L << id)) != 0;
+    }
+    return Arrays.binarySearch(ids, id) >= 0;
+  }
+
+  /**
+   * Returns true if the sets have at least one attendee in common.
+   */
+  public boolean intersects(AttendeeSet other) {
+    if (words != null && other.words != null) {
+      int commonWords = Math.min(words.length, other.words.length);
+      for (int i = 0; i < commonWords; i++) {
+        if ((words[i] & other.words[i]) != 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+    if (words != null) {
+      return intersects(other.ids, 0, other.size);
+    }
+    return other.intersects(ids, 0, size);
+  }
+
+  /**
+   * Returns true if any of {@code sortedIds[from]} up to {@code sortedIds[to]} (exclusive) is in
+   * the set.
+   */
+  boolean intersects(int[] sortedIds, int from, int to) {
+    if (words != null) {
+      for (int i = from; i < to; i++) {
+        if (contains(sortedIds[i])) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    // Both are sorted, so walk them together.
+    int i = 0;
+    int j = from;
+    while (i < size && j < to) {
+      if (ids[i] == sortedIds[j]) {
+        return true;
+      } else if (ids[i] < sortedIds[j]) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,101 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * When one attendee can be scheduled: their working hours and any periods blocked out within them.
+ * The time they can't be scheduled is worked out once, as a sorted list of busy intervals, so that
+ * a calendar can merge it with their events and queries never check slots against it.
+ * Availability is considered read-only.
+ */
+public final class Availability {
+  private final TimeRange workingHours;
+  private final List<TimeRange> blockedPeriods;
+  private final IntervalList unavailableIntervals;
+
+  /**
+   * Creates a new availability.
+   *
+   * @param workingHours The part of the day the attendee works. Must be non-null.
+   * @param blockedPeriods Times the attendee can't be scheduled even within their working hours.
+   *     Must be non-null.
+   */
+  public Availability(TimeRange workingHours, Collection<TimeRange> blockedPeriods) {
+    if (workingHours == null) {
+      throw new IllegalArgumentException("workingHours cannot be null");
+    }
+
+    if (blockedPeriods == null) {
+      throw new IllegalArgumentException("blockedPeriods cannot be null. Use empty array instead.");
+    }
+
+    this.workingHours = workingHours;
+    this.blockedPeriods = Collections.unmodifiableList(new ArrayList<>(blockedPeriods));
+
+    List<TimeRange> unavailable = new ArrayList<>();
+    if (workingHours.start() > TimeRange.START_OF_DAY) {
+      unavailable.add(
+          TimeRange.fromStartEnd(TimeRange.START_OF_DAY, workingHours.start(), false));
+    }
+    if (workingHours.end() < TimeRange.WHOLE_DAY.end()) {
+      unavailable.add(
+          TimeRange.fromStartEnd(workingHours.end(), TimeRange.WHOLE_DAY.end(), false));
+    }
+    for (TimeRange period : blockedPeriods) {
+      if (period.duration() > 0) {
+        unavailable.add(period);
+      }
+    }
+    Collections.sort(unavailable, TimeRange.ORDER_BY_START);
+    IntervalList.Builder builder = new IntervalList.Builder();
+    for (TimeRange range : unavailable) {
+      builder.add(range.start(), range.end());
+    }
+    this.unavailableIntervals = builder.build();
+  }
+
+  /**
+   * Creates an availability with working hours and nothing blocked.
+   */
+  public static Availability workingHours(TimeRange workingHours) {
+    return new Availability(workingHours, Collections.emptyList());
+  }
+
+  /**
+   * Returns the part of the day the attendee works.
+   */
+  public TimeRange getWorkingHours() {
+    return workingHours;
+  }
+
+  /**
+   * Returns a read-only list of the periods blocked within the working hours.
+   */
+  public List<TimeRange> getBlockedPeriods() {
+    return blockedPeriods;
+  }
+
+  /**
+   * Returns the times the attendee can't be scheduled, ordered by start time.
+   */
+  IntervalList getUnavailableIntervals() {
+    return unavailableIntervals;
+  }
+}
@@ -0,0 +1,81 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Answers many meeting requests against one shared {@link BusyCalendar}. Each request is evaluated
+ * as its own task on a fork-join pool, so a batch takes about as long as its slowest request
+ * rather than the sum of all of them.
+ */
+public final class BatchMeetingQuery {
+  private final BusyCalendar calendar;
+  private final ForkJoinPool pool;
+  private final FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+
+  /**
+   * Creates a batch query.
+   *
+   * @param calendar busy intervals of everyone during the day. Must be non-null.
+   * @param pool the pool to evaluate requests on. Must be non-null.
+   */
+  public BatchMeetingQuery(BusyCalendar calendar, ForkJoinPool pool) {
+    if (calendar == null) {
+      throw new IllegalArgumentException("calendar cannot be null");
+    }
+
+    if (pool == null) {
+      throw new IllegalArgumentException("pool cannot be null");
+    }
+
+    this.calendar = calendar;
+    this.pool = pool;
+  }
+
+  /**
+   * Starts evaluating every request and returns one task per request, in the same order as
+   * {@code requests}. Joining the tasks in order lets a caller send back each answer as soon as it
+   * and the ones before it are ready.
+   *
+   * @param requests requests for meetings with specified requirements (duration, attendees)
+   * @return tasks that complete with the time ranges each requested meeting can be held at.
+   */
+  public List<ForkJoinTask<Collection<TimeRange>>> submit(List<MeetingRequest> requests) {
+    List<ForkJoinTask<Collection<TimeRange>>> tasks = new ArrayList<>(requests.size());
+    for (MeetingRequest request : requests) {
+      tasks.add(pool.submit(() -> findMeetingQuery.query(calendar, request)));
+    }
+    return tasks;
+  }
+
+  /**
+   * Evaluates every request and returns the answers in the same order as {@code requests}.
+   *
+   * @param requests requests for meetings with specified requirements (duration, attendees)
+   * @return the time ranges each requested meeting can be held at.
+   */
+  public List<Collection<TimeRange>> query(List<MeetingRequest> requests) {
+    List<Collection<TimeRange>> answers = new ArrayList<>(requests.size());
+    for (ForkJoinTask<Collection<TimeRange>> task : submit(requests)) {
+      answers.add(task.join());
+    }
+    return answers;
+  }
+}
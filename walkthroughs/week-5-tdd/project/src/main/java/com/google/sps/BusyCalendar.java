@@ -0,0 +1,31 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+/**
+ * The times each attendee is busy, which is all {@link FindMeetingQuery} needs to know about a
+ * calendar.
+ */
+public interface BusyCalendar {
+  /**
+   * Returns true if nobody is busy at any time.
+   */
+  boolean isEmpty();
+
+  /**
+   * Returns the intervals {@code attendee} is busy, ordered by start time.
+   */
+  IntervalList getBusyIntervals(String attendee);
+}
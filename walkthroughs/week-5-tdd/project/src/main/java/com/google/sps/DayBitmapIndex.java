@@ -0,0 +1,149 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Models each attendee's day as a bitmap with one bit per minute that is set while they are busy.
+ * A query ORs together the bitmaps of the requested attendees and scans the result a word at a time
+ * for free runs, which stays fast for requests with many attendees and allocates nothing beyond the
+ * result list.
+ *
+ * <p>Events with no duration don't mark any minute as busy, so unlike {@link EventIndex} they never
+ * split a free range.
+ */
+public final class DayBitmapIndex {
+  private static final int MINUTES_PER_DAY = TimeRange.WHOLE_DAY.duration();
+  private static final int WORDS_PER_DAY = (MINUTES_PER_DAY + Long.SIZE - 1) / Long.SIZE;
+
+  // Reused between queries on the same thread so that a query doesn't allocate its working bitmap.
+  private static final ThreadLocal<long[]> SCRATCH =
+      ThreadLocal.withInitial(() -> new long[WORDS_PER_DAY]);
+
+  private final Map<String, long[]> busyMinutesByAttendee = new HashMap<>();
+  private final boolean empty;
+
+  /**
+   * Creates a bitmap index over {@code events}.
+   *
+   * @param events the events to index. Must be non-null.
+   */
+  public DayBitmapIndex(Collection<Event> events) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null. Use empty collection instead.");
+    }
+
+    for (Event event : events) {
+      for (String attendee : event.getAttendees()) {
+        long[] busyMinutes =
+            busyMinutesByAttendee.computeIfAbsent(attendee, unused -> new long[WORDS_PER_DAY]);
+        setRange(busyMinutes, event.getWhen().start(), event.getWhen().end());
+      }
+    }
+    this.empty = events.isEmpty();
+  }
+
+  /**
+   * Returns true if no events are indexed.
+   */
+  public boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * Returns the free ranges of at least {@code meetingDuration} minutes shared by every attendee
+   * in {@code meetingAttendees}.
+   */
+  Collection<TimeRange> availableTimeRanges(Set<String> meetingAttendees, long meetingDuration) {
+    long[] busyMinutes = SCRATCH.get();
+    Arrays.fill(busyMinutes, 0L);
+    for (String attendee : meetingAttendees) {
+      long[] attendeeBusyMinutes = busyMinutesByAttendee.get(attendee);
+      if (attendeeBusyMinutes != null) {
+        for (int i = 0; i < WORDS_PER_DAY; i++) {
+          busyMinutes[i] |= attendeeBusyMinutes[i];
+        }
+      }
+    }
+
+    List<TimeRange> availableTimes = new ArrayList<>();
+    int freeStart = nextClearBit(busyMinutes, 0);
+    while (freeStart < MINUTES_PER_DAY) {
+      int freeEnd = nextSetBit(busyMinutes, freeStart);
+      // As in the other engines, a meeting at the end of the day must finish by END_OF_DAY.
+      int latestEnd = freeEnd == MINUTES_PER_DAY ? TimeRange.END_OF_DAY : freeEnd;
+      if (latestEnd - freeStart >= meetingDuration) {
+        availableTimes.add(TimeRange.fromStartEnd(freeStart, freeEnd, /* inclusive= */ false));
+      }
+      freeStart = nextClearBit(busyMinutes, freeEnd);
+    }
+    return availableTimes;
+  }
+
+  /** Sets the bits for minutes {@code start} (inclusive) to {@code end} (exclusive). */
+  private static void setRange(long[] bits, int start, int end) {
+    start = Math.max(start, 0);
+    end = Math.min(end, MINUTES_PER_DAY);
+    if (start >= end) {
+      return;
+    }
+    int startWord = start / Long.SIZE;
+    int endWord = (end - 1) / Long.SIZE;
+    // Shifts of a long only use the low six bits, so these masks need no modulo.
+    long startMask = -1L << start;
+    long endMask = -1L >>> (Long.SIZE - end);
+    if (startWord == endWord) {
+      bits[startWord] |= startMask & endMask;
+      return;
+    }
+    bits[startWord] |= startMask;
+    for (int i = startWord + 1; i < endWord; i++) {
+      bits[i] = -1L;
+    }
+    bits[endWord] |= endMask;
+  }
+
+  /** Returns the first busy minute at or after {@code from}, or the end of the day if none. */
+  private static int nextSetBit(long[] bits, int from) {
+    return nextBit(bits, from, /* set= */ true);
+  }
+
+  /** Returns the first free minute at or after {@code from}, or the end of the day if none. */
+  private static int nextClearBit(long[] bits, int from) {
+    return nextBit(bits, from, /* set= */ false);
+  }
+
+  private static int nextBit(long[] bits, int from, boolean set) {
+    if (from >= MINUTES_PER_DAY) {
+      return MINUTES_PER_DAY;
+    }
+    int wordIndex = from / Long.SIZE;
+    long word = (set ? bits[wordIndex] : ~bits[wordIndex]) & (-1L << from);
+    while (word == 0) {
+      if (++wordIndex == WORDS_PER_DAY) {
+        return MINUTES_PER_DAY;
+      }
+      word = set ? bits[wordIndex] : ~bits[wordIndex];
+    }
+    return Math.min(wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word), MINUTES_PER_DAY);
+  }
+}
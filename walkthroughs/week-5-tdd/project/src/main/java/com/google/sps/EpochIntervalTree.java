@@ -0,0 +1,143 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+
+/**
+ * A static interval tree over half-open {@code [start, end)} intervals in epoch minutes. The
+ * intervals are kept sorted by start in primitive arrays, and the array is read as an implicit
+ * balanced search tree where every node also stores the largest end in its subtree. Finding the
+ * intervals that overlap a window takes {@code O(min(n, (k + 1) log n))} for {@code k} matches:
+ * each match may cost a walk down from the root, and subtrees that end before the window are
+ * skipped whole.
+ */
+final class EpochIntervalTree {
+  static final EpochIntervalTree EMPTY = new Builder().build();
+
+  private final long[] starts;
+  private final long[] ends;
+  private final int[] ids;
+  private final long[] maxEnds;
+
+  private EpochIntervalTree(long[] starts, long[] ends, int[] ids) {
+    this.starts = starts;
+    this.ends = ends;
+    this.ids = ids;
+    this.maxEnds = new long[starts.length];
+    buildMaxEnds(0, starts.length);
+  }
+
+  int size() {
+    return starts.length;
+  }
+
+  long start(int position) {
+    return starts[position];
+  }
+
+  long end(int position) {
+    return ends[position];
+  }
+
+  /** Returns the id the interval at {@code position} was added with. */
+  int id(int position) {
+    return ids[position];
+  }
+
+  /**
+   * Returns the positions of the intervals that overlap {@code [windowStart, windowEnd)}, in order
+   * of start time, in {@code O(min(n, (k + 1) log n))} for {@code k} matches.
+   */
+  int[] overlapping(long windowStart, long windowEnd) {
+    Positions positions = new Positions();
+    collect(0, starts.length, windowStart, windowEnd, positions);
+    return Arrays.copyOf(positions.values, positions.size);
+  }
+
+  private long buildMaxEnds(int low, int high) {
+    if (low >= high) {
+      return Long.MIN_VALUE;
+    }
+    int mid = (low + high) >>> 1;
+    long maxEnd = Math.max(ends[mid],
+        Math.max(buildMaxEnds(low, mid), buildMaxEnds(mid + 1, high)));
+    maxEnds[mid] = maxEnd;
+    return maxEnd;
+  }
+
+  private void collect(int low, int high, long windowStart, long windowEnd, Positions out) {
+    if (low >= high) {
+      return;
+    }
+    int mid = (low + high) >>> 1;
+    // Nothing in this subtree ends after the window starts.
+    if (maxEnds[mid] <= windowStart) {
+      return;
+    }
+    collect(low, mid, windowStart, windowEnd, out);
+    // This interval and everything to its right start after the window ends.
+    if (starts[mid] >= windowEnd) {
+      return;
+    }
+    if (ends[mid] > windowStart) {
+      out.add(mid);
+    }
+    collect(mid + 1, high, windowStart, windowEnd, out);
+  }
+
+  private static final class Positions {
+    private int[] values = new int[8];
+    private int size;
+
+    void add(int position) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = position;
+    }
+  }
+
+  /**
+   * Builds an {@code EpochIntervalTree}. Intervals must be added in ascending order of start time.
+   */
+  static final class Builder {
+    private long[] starts = new long[4];
+    private long[] ends = new long[4];
+    private int[] ids = new int[4];
+    private int size;
+
+    Builder add(long start, long end, int id) {
+      if (size > 0 && start < starts[size - 1]) {
+        throw new IllegalArgumentException("Intervals must be added in order of start time.");
+      }
+      if (size == starts.length) {
+        starts = Arrays.copyOf(starts, size * 2);
+        ends = Arrays.copyOf(ends, size * 2);
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      starts[size] = start;
+      ends[size] = end;
+      ids[size] = id;
+      size++;
+      return this;
+    }
+
+    EpochIntervalTree build() {
+      return new EpochIntervalTree(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size),
+          Arrays.copyOf(ids, size));
+    }
+  }
+}
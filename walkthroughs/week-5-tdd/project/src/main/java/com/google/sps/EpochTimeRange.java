@@ -0,0 +1,124 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Comparator;
+
+/**
+ * A span of time measured in minutes since the Unix epoch. Unlike {@link TimeRange}, which only
+ * covers a single day, an {@code EpochTimeRange} can cover any window, e.g. a week or a month.
+ */
+public final class EpochTimeRange {
+  /**
+   * A comparator for sorting ranges by their start time in ascending order.
+   */
+  public static final Comparator<EpochTimeRange> ORDER_BY_START = new Comparator<EpochTimeRange>() {
+    @Override
+    public int compare(EpochTimeRange a, EpochTimeRange b) {
+      return Long.compare(a.start, b.start);
+    }
+  };
+
+  private final long start;
+  private final long duration;
+
+  private EpochTimeRange(long start, long duration) {
+    if (duration < 0) {
+      throw new IllegalArgumentException("duration cannot be negative");
+    }
+    this.start = start;
+    this.duration = duration;
+  }
+
+  /**
+   * Returns the start of the range in minutes since the epoch.
+   */
+  public long start() {
+    return start;
+  }
+
+  /**
+   * Returns the number of minutes between the start and end.
+   */
+  public long duration() {
+    return duration;
+  }
+
+  /**
+   * Returns the end of the range. This ending value is the closing exclusive bound.
+   */
+  public long end() {
+    return start + duration;
+  }
+
+  /**
+   * Checks if two ranges overlap. This means that at least some part of one range falls within the
+   * bounds of another range.
+   */
+  public boolean overlaps(EpochTimeRange other) {
+    return this.contains(other.start) || other.contains(this.start);
+  }
+
+  /**
+   * Checks if {@code point} falls within this range. The end of the range is not included.
+   */
+  public boolean contains(long point) {
+    return duration > 0 && point >= start && point < start + duration;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof EpochTimeRange && equals(this, (EpochTimeRange) other);
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(start) ^ Long.hashCode(duration);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Range: [%d, %d)", start, start + duration);
+  }
+
+  private static boolean equals(EpochTimeRange a, EpochTimeRange b) {
+    return a.start == b.start && a.duration == b.duration;
+  }
+
+  /**
+   * Creates an {@code EpochTimeRange} from {@code start} to {@code end}. Whether or not {@code end}
+   * is included in the range will depend on {@code inclusive}.
+   */
+  public static EpochTimeRange fromStartEnd(long start, long end, boolean inclusive) {
+    return inclusive ? new EpochTimeRange(start, end - start + 1)
+        : new EpochTimeRange(start, end - start);
+  }
+
+  /**
+   * Creates an {@code EpochTimeRange} starting at {@code start} with a duration equal to
+   * {@code duration}.
+   */
+  public static EpochTimeRange fromStartDuration(long start, long duration) {
+    return new EpochTimeRange(start, duration);
+  }
+
+  /**
+   * Converts a single-day {@code range} to an {@code EpochTimeRange} on the day that starts at
+   * {@code dayStart} minutes since the epoch.
+   */
+  public static EpochTimeRange fromTimeRange(long dayStart, TimeRange range) {
+    return new EpochTimeRange(dayStart + range.start(), range.duration());
+  }
+}
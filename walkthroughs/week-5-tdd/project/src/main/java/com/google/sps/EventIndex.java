@@ -0,0 +1,125 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pre-built index over a collection of events that can answer many meeting queries. Events are
+ * sorted by start time once, and every attendee gets a posting list of the intervals they are busy,
+ * so a query only reads the intervals of the people it asks about.
+ *
+ * <p>Attendees may also have an {@link Availability}. The time outside their working hours is
+ * merged into their posting list when the index is built, so queries treat it exactly like the
+ * time they spend in events.
+ */
+public final class EventIndex implements BusyCalendar {
+  private final List<Event> eventsByStart;
+  private final Map<String, IntervalList> busyIntervalsByAttendee = new HashMap<>();
+  private final boolean empty;
+
+  /**
+   * Creates an index over {@code events}.
+   *
+   * @param events the events to index. Must be non-null.
+   */
+  public EventIndex(Collection<Event> events) {
+    this(events, Collections.emptyMap());
+  }
+
+  /**
+   * Creates an index over {@code events} in which attendees are also busy whenever their
+   * availability says they can't be scheduled.
+   *
+   * @param events the events to index. Must be non-null.
+   * @param availabilityByAttendee the availability of attendees who don't work the whole day.
+   *     Must be non-null.
+   */
+  public EventIndex(Collection<Event> events, Map<String, Availability> availabilityByAttendee) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null. Use empty collection instead.");
+    }
+
+    if (availabilityByAttendee == null) {
+      throw new IllegalArgumentException(
+          "availabilityByAttendee cannot be null. Use empty map instead.");
+    }
+
+    List<Event> sorted = new ArrayList<>(events);
+    Collections.sort(sorted, Event.ORDER_BY_START);
+    this.eventsByStart = Collections.unmodifiableList(sorted);
+
+    // Events are visited in start order, so every posting list is built already sorted. Events
+    // with no duration take up no time, so they are left out.
+    Map<String, IntervalList.Builder> builders = new HashMap<>();
+    for (Event event : sorted) {
+      if (event.getWhen().duration() <= 0) {
+        continue;
+      }
+      for (String attendee : event.getAttendees()) {
+        builders.computeIfAbsent(attendee, unused -> new IntervalList.Builder())
+            .add(event.getWhen().start(), event.getWhen().end());
+      }
+    }
+    for (Map.Entry<String, IntervalList.Builder> entry : builders.entrySet()) {
+      busyIntervalsByAttendee.put(entry.getKey(), entry.getValue().build());
+    }
+
+    for (Map.Entry<String, Availability> entry : availabilityByAttendee.entrySet()) {
+      IntervalList unavailable = entry.getValue().getUnavailableIntervals();
+      busyIntervalsByAttendee.merge(entry.getKey(), unavailable, EventIndex::mergeByStart);
+    }
+    this.empty = sorted.isEmpty() && availabilityByAttendee.isEmpty();
+  }
+
+  /**
+   * Returns a read-only list of the indexed events ordered by start time.
+   */
+  public List<Event> getEvents() {
+    return eventsByStart;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return empty;
+  }
+
+  @Override
+  public IntervalList getBusyIntervals(String attendee) {
+    return busyIntervalsByAttendee.getOrDefault(attendee, IntervalList.EMPTY);
+  }
+
+  /** Merges two lists ordered by start time into one, without joining overlapping intervals. */
+  private static IntervalList mergeByStart(IntervalList a, IntervalList b) {
+    IntervalList.Builder merged = new IntervalList.Builder();
+    int i = 0;
+    int j = 0;
+    while (i < a.size() || j < b.size()) {
+      if (j == b.size() || (i < a.size() && a.start(i) <= b.start(j))) {
+        merged.add(a.start(i), a.end(i));
+        i++;
+      } else {
+        merged.add(b.start(j), b.end(j));
+        j++;
+      }
+    }
+    return merged.build();
+  }
+}
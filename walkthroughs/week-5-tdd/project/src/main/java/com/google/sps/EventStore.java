@@ -0,0 +1,508 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A thread-safe calendar whose events can be added, updated and removed at runtime.
+ *
+ * <p>Every attendee's busy time is kept in two sorted maps. One maps each minute where their
+ * number of overlapping events changes to the number from then on, and the other maps the start
+ * of each merged busy interval to its end. A mutation only raises or lowers the counts under the
+ * event for each of its attendees and splices the intervals those counts cover back into the
+ * second map, which takes {@code O(log n)} for every boundary under the event. The merged
+ * intervals are copied into a list the first time a query needs them and kept until a mutation
+ * touches that attendee again, so queries between mutations share the same lists. Events with no
+ * duration change no count, so they never make an attendee busy, in line with
+ * {@link EventIndex}. The time outside an attendee's {@link Availability} is counted in the same
+ * maps, so queries don't tell it apart from events.
+ *
+ * <p>{@link ChangeListener}s are told which attendees every mutation affects, so anything derived
+ * from their calendars can be invalidated precisely. Anything derived from the whole store can
+ * instead compare {@link #version()}s.
+ *
+ * <p>Events are also indexed by attendee and by start time, so the events of a few people or of
+ * part of the day are found without reading the whole store. A window only scans the events that
+ * start less than the longest event's duration before it.
+ */
+public final class EventStore implements BusyCalendar {
+  /**
+   * Notified of every mutation of the store.
+   */
+  public interface ChangeListener {
+    /**
+     * Called after the busy time of {@code attendees} may have changed. Called while the store is
+     * locked for writing, so that no query sees the new events before listeners have reacted, so
+     * implementations must be quick and must not call back into the store.
+     */
+    void attendeesChanged(Set<String> attendees);
+  }
+
+  private static final EventStore INSTANCE = new EventStore(Arrays.asList(Events.events));
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Long, Event> eventsById = new HashMap<>();
+  // How many events or unavailable intervals overlap each attendee from each minute on.
+  private final Map<String, TreeMap<Integer, Integer>> busyCountsByAttendee = new HashMap<>();
+  // The start of each of an attendee's merged busy intervals, mapped to its end.
+  private final Map<String, TreeMap<Integer, Integer>> busyTimeByAttendee = new HashMap<>();
+  // Filled in by readers, which hold the read lock concurrently, and cleared by writers.
+  private final Map<String, IntervalList> busyIntervalsByAttendee = new ConcurrentHashMap<>();
+  private final Map<String, Set<Long>> eventIdsByAttendee = new HashMap<>();
+  private final TreeMap<Integer, Set<Long>> eventIdsByStart = new TreeMap<>();
+  // How many events there are of each duration, so the longest is known after removals too.
+  private final TreeMap<Integer, Integer> eventCountsByDuration = new TreeMap<>();
+  private final Map<String, Availability> availabilityByAttendee = new HashMap<>();
+  private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+  private long nextId;
+  private volatile long version;
+
+  /**
+   * Creates an empty store.
+   */
+  public EventStore() {}
+
+  /**
+   * Creates a store holding {@code events}.
+   *
+   * @param events the initial events. Must be non-null.
+   */
+  public EventStore(Collection<Event> events) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null. Use empty collection instead.");
+    }
+
+    for (Event event : events) {
+      add(event);
+    }
+  }
+
+  /**
+   * Returns the store shared by the servlets, which starts out with the sample {@link Events}.
+   */
+  public static EventStore getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Registers {@code listener} to be notified of every later mutation.
+   */
+  public void addChangeListener(ChangeListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Stops notifying {@code listener}.
+   */
+  public void removeChangeListener(ChangeListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Adds an event.
+   *
+   * @param event the event to add. Must be non-null.
+   * @return the id to update or remove the event with.
+   */
+  public long add(Event event) {
+    if (event == null) {
+      throw new IllegalArgumentException("event cannot be null");
+    }
+
+    lock.writeLock().lock();
+    try {
+      long id = nextId++;
+      eventsById.put(id, event);
+      addBusyTime(event, 1);
+      index(id, event);
+      version++;
+      notifyListeners(event.getAttendees());
+      return id;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Replaces the event with the given id.
+   *
+   * @param id the id returned when the event was added
+   * @param event the new version of the event. Must be non-null.
+   * @return false if there is no event with the given id.
+   */
+  public boolean update(long id, Event event) {
+    if (event == null) {
+      throw new IllegalArgumentException("event cannot be null");
+    }
+
+    lock.writeLock().lock();
+    try {
+      Event previous = eventsById.get(id);
+      if (previous == null) {
+        return false;
+      }
+      eventsById.put(id, event);
+      addBusyTime(previous, -1);
+      addBusyTime(event, 1);
+      unindex(id, previous);
+      index(id, event);
+      version++;
+      Set<String> attendees = new HashSet<>(previous.getAttendees());
+      attendees.addAll(event.getAttendees());
+      notifyListeners(attendees);
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes the event with the given id.
+   *
+   * @param id the id returned when the event was added
+   * @return false if there is no event with the given id.
+   */
+  public boolean remove(long id) {
+    lock.writeLock().lock();
+    try {
+      Event previous = eventsById.remove(id);
+      if (previous == null) {
+        return false;
+      }
+      addBusyTime(previous, -1);
+      unindex(id, previous);
+      version++;
+      notifyListeners(previous.getAttendees());
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Sets when {@code attendee} can be scheduled, replacing any availability set before.
+   *
+   * @param attendee the attendee. Must be non-null.
+   * @param availability when the attendee can be scheduled, or null if they can be scheduled at
+   *     any time they aren't in an event.
+   */
+  public void setAvailability(String attendee, Availability availability) {
+    if (attendee == null) {
+      throw new IllegalArgumentException("attendee cannot be null");
+    }
+
+    lock.writeLock().lock();
+    try {
+      Availability previous = availability == null
+          ? availabilityByAttendee.remove(attendee)
+          : availabilityByAttendee.put(attendee, availability);
+      if (previous == null && availability == null) {
+        return;
+      }
+      if (previous != null) {
+        addUnavailableTime(attendee, previous, -1);
+      }
+      if (availability != null) {
+        addUnavailableTime(attendee, availability, 1);
+      }
+      version++;
+      notifyListeners(Collections.singleton(attendee));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns when {@code attendee} can be scheduled, if it has been set.
+   */
+  public Optional<Availability> getAvailability(String attendee) {
+    lock.readLock().lock();
+    try {
+      return Optional.ofNullable(availabilityByAttendee.get(attendee));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the event with the given id, if there is one.
+   */
+  public Optional<Event> get(long id) {
+    lock.readLock().lock();
+    try {
+      return Optional.ofNullable(eventsById.get(id));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns a copy of the events currently in the store, ordered by start time.
+   */
+  public List<Event> getEvents() {
+    List<Event> events;
+    lock.readLock().lock();
+    try {
+      events = new ArrayList<>(eventsById.values());
+    } finally {
+      lock.readLock().unlock();
+    }
+    Collections.sort(events, Event.ORDER_BY_START);
+    return events;
+  }
+
+  /**
+   * Returns the events that overlap {@code window}, ordered by start time.
+   */
+  public List<Event> getEvents(TimeRange window) {
+    List<Event> events = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      // Only events that start before the window ends, and no longer before it starts than the
+      // longest event lasts, can overlap it.
+      int longestDuration = eventCountsByDuration.isEmpty() ? 0 : eventCountsByDuration.lastKey();
+      int earliestStart = window.start() - longestDuration;
+      if (earliestStart >= window.end()) {
+        return events;
+      }
+      for (Set<Long> ids :
+          eventIdsByStart.subMap(earliestStart, false, window.end(), false).values()) {
+        for (long id : ids) {
+          Event event = eventsById.get(id);
+          if (event.getWhen().end() > window.start()) {
+            events.add(event);
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return events;
+  }
+
+  /**
+   * Returns the events that any of {@code attendees} go to and that overlap {@code window},
+   * ordered by start time.
+   */
+  public List<Event> getEvents(Set<String> attendees, TimeRange window) {
+    List<Event> events = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      Set<Long> ids = new HashSet<>();
+      for (String attendee : attendees) {
+        ids.addAll(eventIdsByAttendee.getOrDefault(attendee, Collections.emptySet()));
+      }
+      for (long id : ids) {
+        Event event = eventsById.get(id);
+        if (event.getWhen().start() < window.end() && event.getWhen().end() > window.start()) {
+          events.add(event);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    Collections.sort(events, Event.ORDER_BY_START);
+    return events;
+  }
+
+  /**
+   * Returns a number that changes whenever the events or availabilities in the store change.
+   */
+  public long version() {
+    return version;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    lock.readLock().lock();
+    try {
+      return eventsById.isEmpty() && availabilityByAttendee.isEmpty();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public IntervalList getBusyIntervals(String attendee) {
+    lock.readLock().lock();
+    try {
+      TreeMap<Integer, Integer> busyTime = busyTimeByAttendee.get(attendee);
+      if (busyTime == null) {
+        return IntervalList.EMPTY;
+      }
+      // Writers clear an attendee's entry while holding the write lock, so a list built here can
+      // never outlive the intervals it was copied from.
+      return busyIntervalsByAttendee.computeIfAbsent(attendee, unused -> toIntervalList(busyTime));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static IntervalList toIntervalList(TreeMap<Integer, Integer> busyTime) {
+    IntervalList.Builder busyIntervals = new IntervalList.Builder();
+    for (Map.Entry<Integer, Integer> interval : busyTime.entrySet()) {
+      busyIntervals.add(interval.getKey(), interval.getValue());
+    }
+    return busyIntervals.build();
+  }
+
+  private void index(long id, Event event) {
+    eventCountsByDuration.merge(event.getWhen().duration(), 1, Integer::sum);
+    eventIdsByStart.computeIfAbsent(event.getWhen().start(), unused -> new HashSet<>()).add(id);
+    for (String attendee : event.getAttendees()) {
+      eventIdsByAttendee.computeIfAbsent(attendee, unused -> new HashSet<>()).add(id);
+    }
+  }
+
+  private void unindex(long id, Event event) {
+    eventCountsByDuration.merge(event.getWhen().duration(), -1,
+        (a, b) -> a + b == 0 ? null : a + b);
+    removeId(eventIdsByStart, event.getWhen().start(), id);
+    for (String attendee : event.getAttendees()) {
+      removeId(eventIdsByAttendee, attendee, id);
+    }
+  }
+
+  private static <K> void removeId(Map<K, Set<Long>> idsByKey, K key, long id) {
+    Set<Long> ids = idsByKey.get(key);
+    ids.remove(id);
+    if (ids.isEmpty()) {
+      idsByKey.remove(key);
+    }
+  }
+
+  private void notifyListeners(Set<String> attendees) {
+    for (ChangeListener listener : listeners) {
+      listener.attendeesChanged(attendees);
+    }
+  }
+
+  /** Adds {@code delta} to the number of events each attendee of {@code event} is in. */
+  private void addBusyTime(Event event, int delta) {
+    TimeRange when = event.getWhen();
+    if (when.duration() <= 0) {
+      return;
+    }
+    for (String attendee : event.getAttendees()) {
+      addBusyRange(attendee, when.start(), when.end(), delta);
+    }
+  }
+
+  /** Adds {@code delta} to the count of {@code attendee} wherever they can't be scheduled. */
+  private void addUnavailableTime(String attendee, Availability availability, int delta) {
+    IntervalList unavailable = availability.getUnavailableIntervals();
+    for (int i = 0; i < unavailable.size(); i++) {
+      addBusyRange(attendee, unavailable.start(i), unavailable.end(i), delta);
+    }
+  }
+
+  /**
+   * Adds {@code delta} to the count of {@code attendee} over {@code [start, end)} and updates their
+   * merged busy intervals inside it. Nothing outside the range changes.
+   */
+  private void addBusyRange(String attendee, int start, int end, int delta) {
+    TreeMap<Integer, Integer> busyCounts =
+        busyCountsByAttendee.computeIfAbsent(attendee, unused -> new TreeMap<>());
+    TreeMap<Integer, Integer> busyTime =
+        busyTimeByAttendee.computeIfAbsent(attendee, unused -> new TreeMap<>());
+
+    // Split the counts at both ends so that every count inside the range lies wholly within it.
+    splitAt(busyCounts, start);
+    splitAt(busyCounts, end);
+    NavigableMap<Integer, Integer> inside = busyCounts.subMap(start, true, end, false);
+    for (Map.Entry<Integer, Integer> count : inside.entrySet()) {
+      count.setValue(count.getValue() + delta);
+    }
+
+    // Cut the range out of the merged intervals, keeping what lies on either side of it.
+    Map.Entry<Integer, Integer> before = busyTime.lowerEntry(start);
+    if (before != null && before.getValue() > start) {
+      busyTime.put(before.getKey(), start);
+      if (before.getValue() > end) {
+        busyTime.put(end, before.getValue());
+      }
+    }
+    Map.Entry<Integer, Integer> last = busyTime.lowerEntry(end);
+    if (last != null && last.getKey() >= start && last.getValue() > end) {
+      busyTime.put(end, last.getValue());
+    }
+    busyTime.subMap(start, true, end, false).clear();
+
+    // Put back the parts of the range where the count is above zero, joining them to the
+    // intervals on either side if they touch.
+    int busyStart = -1;
+    for (Map.Entry<Integer, Integer> count : inside.entrySet()) {
+      if (count.getValue() > 0 && busyStart < 0) {
+        busyStart = count.getKey();
+      } else if (count.getValue() == 0 && busyStart >= 0) {
+        busyTime.put(busyStart, count.getKey());
+        busyStart = -1;
+      }
+    }
+    if (busyStart >= 0) {
+      busyTime.put(busyStart, end);
+    }
+    joinAt(busyTime, start);
+    joinAt(busyTime, end);
+
+    // Drop counts that no longer differ from the one before, so the map only holds real changes.
+    dropIfUnchanged(busyCounts, start);
+    dropIfUnchanged(busyCounts, end);
+    if (busyCounts.isEmpty()) {
+      busyCountsByAttendee.remove(attendee);
+      busyTimeByAttendee.remove(attendee);
+    }
+    busyIntervalsByAttendee.remove(attendee);
+  }
+
+  private static void splitAt(TreeMap<Integer, Integer> busyCounts, int time) {
+    if (!busyCounts.containsKey(time)) {
+      Map.Entry<Integer, Integer> before = busyCounts.lowerEntry(time);
+      busyCounts.put(time, before == null ? 0 : before.getValue());
+    }
+  }
+
+  private static void dropIfUnchanged(TreeMap<Integer, Integer> busyCounts, int time) {
+    Integer count = busyCounts.get(time);
+    Map.Entry<Integer, Integer> before = busyCounts.lowerEntry(time);
+    if (count != null && count == (before == null ? 0 : before.getValue())) {
+      busyCounts.remove(time);
+    }
+  }
+
+  /** Joins the interval starting at {@code time} to the one ending there, if both exist. */
+  private static void joinAt(TreeMap<Integer, Integer> busyTime, int time) {
+    Map.Entry<Integer, Integer> before = busyTime.lowerEntry(time);
+    if (before != null && before.getValue() == time && busyTime.containsKey(time)) {
+      busyTime.put(before.getKey(), busyTime.remove(time));
+    }
+  }
+}
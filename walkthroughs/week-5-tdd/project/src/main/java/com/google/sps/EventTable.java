@@ -0,0 +1,123 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A compact, read-only table of events stored as parallel primitive arrays instead of
+ * {@link Event} objects. Events are ordered by start time, and the attendees of every event are
+ * interned once into an {@link AttendeeSet}. A query checks each event with
+ * {@link AttendeeSet#intersects(AttendeeSet)}, which is a word-wise AND when both sides are
+ * bitsets, so it compares ids rather than hashing names and needs no boxing however many events
+ * the table holds.
+ */
+public final class EventTable {
+  private final int[] starts;
+  private final int[] ends;
+  private final AttendeeSet[] eventAttendees;
+  private final AttendeeRegistry registry;
+
+  /**
+   * Creates a table holding {@code events} with its own attendee registry.
+   *
+   * @param events the events to store. Must be non-null.
+   */
+  public EventTable(Collection<Event> events) {
+    this(events, new AttendeeRegistry());
+  }
+
+  /**
+   * Creates a table holding {@code events}, interning attendees in {@code registry}.
+   *
+   * @param events the events to store. Must be non-null.
+   * @param registry the registry to intern attendees in. Must be non-null.
+   */
+  public EventTable(Collection<Event> events, AttendeeRegistry registry) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null. Use empty collection instead.");
+    }
+
+    if (registry == null) {
+      throw new IllegalArgumentException("registry cannot be null");
+    }
+
+    this.registry = registry;
+
+    // Events with no duration take up no time, so they are left out.
+    List<Event> sorted = new ArrayList<>();
+    for (Event event : events) {
+      if (event.getWhen().duration() > 0) {
+        sorted.add(event);
+      }
+    }
+    Collections.sort(sorted, Event.ORDER_BY_START);
+
+    this.starts = new int[sorted.size()];
+    this.ends = new int[sorted.size()];
+    this.eventAttendees = new AttendeeSet[sorted.size()];
+    for (int i = 0; i < sorted.size(); i++) {
+      Event event = sorted.get(i);
+      starts[i] = event.getWhen().start();
+      ends[i] = event.getWhen().end();
+      eventAttendees[i] = registry.intern(event.getAttendees());
+    }
+  }
+
+  /**
+   * Returns the number of events in the table.
+   */
+  public int size() {
+    return starts.length;
+  }
+
+  /**
+   * Returns true if the table holds no events.
+   */
+  public boolean isEmpty() {
+    return starts.length == 0;
+  }
+
+  /**
+   * Returns the start of the event at {@code index}.
+   */
+  public int start(int index) {
+    return starts[index];
+  }
+
+  /**
+   * Returns the exclusive end of the event at {@code index}.
+   */
+  public int end(int index) {
+    return ends[index];
+  }
+
+  /**
+   * Returns the registry the attendees of the table are interned in.
+   */
+  public AttendeeRegistry getRegistry() {
+    return registry;
+  }
+
+  /**
+   * Returns true if any attendee of the event at {@code index} is in {@code attendees}.
+   */
+  boolean hasAnyAttendee(int index, AttendeeSet attendees) {
+    return attendees.intersects(eventAttendees[index]);
+  }
+}
@@ -0,0 +1,91 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pre-built index over events that may span many days. Every attendee gets an interval tree of
+ * the times they are busy, so the events overlapping a search window are found in logarithmic time
+ * instead of scanning the whole calendar or querying one day at a time.
+ */
+public final class EventTimeline {
+  private final List<EpochEvent> eventsByStart;
+  private final EpochIntervalTree allEvents;
+  private final Map<String, EpochIntervalTree> busyIntervalsByAttendee = new HashMap<>();
+
+  /**
+   * Creates a timeline over {@code events}.
+   *
+   * @param events the events to index. Must be non-null.
+   */
+  public EventTimeline(Collection<EpochEvent> events) {
+    if (events == null) {
+      throw new IllegalArgumentException("events cannot be null. Use empty collection instead.");
+    }
+
+    List<EpochEvent> sorted = new ArrayList<>(events);
+    Collections.sort(sorted,
+        (a, b) -> EpochTimeRange.ORDER_BY_START.compare(a.getWhen(), b.getWhen()));
+    this.eventsByStart = Collections.unmodifiableList(sorted);
+
+    // Events are visited in start order, so every tree is built already sorted. An interval's id is
+    // the position of its event in eventsByStart.
+    EpochIntervalTree.Builder allEventsBuilder = new EpochIntervalTree.Builder();
+    Map<String, EpochIntervalTree.Builder> builders = new HashMap<>();
+    for (int i = 0; i < sorted.size(); i++) {
+      EpochTimeRange when = sorted.get(i).getWhen();
+      allEventsBuilder.add(when.start(), when.end(), i);
+      for (String attendee : sorted.get(i).getAttendees()) {
+        builders.computeIfAbsent(attendee, unused -> new EpochIntervalTree.Builder())
+            .add(when.start(), when.end(), i);
+      }
+    }
+    this.allEvents = allEventsBuilder.build();
+    for (Map.Entry<String, EpochIntervalTree.Builder> entry : builders.entrySet()) {
+      busyIntervalsByAttendee.put(entry.getKey(), entry.getValue().build());
+    }
+  }
+
+  /**
+   * Returns the events that overlap {@code window}, ordered by start time.
+   */
+  public List<EpochEvent> getEvents(EpochTimeRange window) {
+    List<EpochEvent> events = new ArrayList<>();
+    for (int position : allEvents.overlapping(window.start(), window.end())) {
+      events.add(eventsByStart.get(allEvents.id(position)));
+    }
+    return events;
+  }
+
+  /**
+   * Returns true if no events are indexed.
+   */
+  public boolean isEmpty() {
+    return eventsByStart.isEmpty();
+  }
+
+  /**
+   * Returns the intervals {@code attendee} is busy.
+   */
+  EpochIntervalTree getBusyIntervals(String attendee) {
+    return busyIntervalsByAttendee.getOrDefault(attendee, EpochIntervalTree.EMPTY);
+  }
+}
@@ -23,10 +23,49 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public final class FindMeetingQuery {
+  // The number of attendees from which their busy intervals are merged in parallel by default.
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 256;
+
+  private final ForkJoinPool pool;
+  private final int parallelThreshold;
+
+  /**
+  * Creates a query that merges the busy intervals of large attendee sets on the common fork-join
+  * pool.
+  */
+  public FindMeetingQuery() {
+    this(ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+  * Creates a query that merges the busy intervals of requests with at least
+  * {@code parallelThreshold} attendees in parallel on {@code pool}. Smaller requests are merged on
+  * the calling thread.
+  *
+  * @param pool the pool to merge busy intervals on. Must be non-null.
+  * @param parallelThreshold the smallest attendee set to merge in parallel
+  */
+  public FindMeetingQuery(ForkJoinPool pool, int parallelThreshold) {
+    if (pool == null) {
+      throw new IllegalArgumentException("pool cannot be null");
+    }
+
+    this.pool = pool;
+    this.parallelThreshold = parallelThreshold;
+  }
+
   /**
   * Returns time ranges that satisfy meeting request requirements and do not conflict with meeting
   * attendees' other events.
@@ -38,69 +77,397 @@ public final class FindMeetingQuery {
   * @return collection of time ranges that requested meeting can be held at. 
   */
   public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+    return query(new EventIndex(events), request);
+  }
+
+  /**
+  * Returns time ranges that satisfy meeting request requirements, using a calendar that already
+  * knows each attendee's busy intervals so that the events don't need to be re-sorted for every
+  * query, e.g. a pre-built {@link EventIndex} or a live {@link EventStore}.
+  *
+  * @param calendar busy intervals of everyone during the day
+  * @param request request for meeting with specified requirements (duration, attendees)
+  * @return collection of time ranges that requested meeting can be held at.
+  */
+  public Collection<TimeRange> query(BusyCalendar calendar, MeetingRequest request) {
+    return query(request, TimeRange.WHOLE_DAY.duration(), TimeRange.WHOLE_DAY, calendar.isEmpty(),
+        (meetingAttendees, meetingDuration) ->
+            availableTimeRanges(meetingAttendees, calendar, meetingDuration));
+  }
+
+  /**
+  * Returns time ranges that satisfy meeting request requirements, using a minute-by-minute bitmap
+  * of each attendee's day. Events that take no time don't block any minute in this mode.
+  *
+  * @param index bitmap index over the events happening during the day
+  * @param request request for meeting with specified requirements (duration, attendees)
+  * @return collection of time ranges that requested meeting can be held at.
+  */
+  public Collection<TimeRange> query(DayBitmapIndex index, MeetingRequest request) {
+    return query(request, TimeRange.WHOLE_DAY.duration(), TimeRange.WHOLE_DAY, index.isEmpty(),
+        index::availableTimeRanges);
+  }
+
+  /**
+  * Returns the same time ranges as {@link #query(BusyCalendar, MeetingRequest)}, in time order, but
+  * finds each one only when the stream asks for it. Taking the first few slots with
+  * {@link Stream#limit} only reads the busy intervals up to the last slot taken. Against an
+  * {@link EventStore} the stream walks the lists the store keeps between mutations, so no
+  * attendee's intervals are rebuilt to answer it.
+  *
+  * @param calendar busy intervals of everyone during the day
+  * @param request request for meeting with specified requirements (duration, attendees)
+  * @return lazy stream of time ranges that requested meeting can be held at.
+  */
+  public Stream<TimeRange> availableSlots(BusyCalendar calendar, MeetingRequest request) {
+    return availableSlots(calendar, request, TimeRange.START_OF_DAY);
+  }
+
+  /**
+  * Returns time ranges that satisfy meeting request requirements and start no earlier than
+  * {@code notBefore}, found lazily in time order. Each attendee's busy intervals are entered with a
+  * binary search, so intervals before {@code notBefore} are never scanned.
+  * If no slot after {@code notBefore} fits the optional attendees as well, the slots that fit just
+  * the mandatory attendees are returned, as with {@link #query(BusyCalendar, MeetingRequest)}.
+  *
+  * @param calendar busy intervals of everyone during the day
+  * @param request request for meeting with specified requirements (duration, attendees)
+  * @param notBefore the earliest time in minutes that a slot may start
+  * @return lazy stream of time ranges that requested meeting can be held at.
+  */
+  public Stream<TimeRange> availableSlots(BusyCalendar calendar, MeetingRequest request,
+            int notBefore) {
+    Set<String> mandatoryAttendees = request.getAttendees();
+    Set<String> optionalAndMandatoryAttendees = new ImmutableSet.Builder<String>()
+          .addAll(request.getOptionalAttendees())
+          .addAll(mandatoryAttendees)
+          .build();
+    long meetingDuration = request.getDuration();
+
+    Iterator<TimeRange> slots;
+    if (meetingDuration > TimeRange.WHOLE_DAY.duration()) {
+      slots = Collections.emptyIterator();
+    } else if (calendar.isEmpty() && notBefore <= TimeRange.START_OF_DAY) {
+      slots = Collections.singleton(TimeRange.WHOLE_DAY).iterator();
+    } else {
+      slots = new SlotIterator(optionalAndMandatoryAttendees, calendar, meetingDuration, notBefore);
+      // Finding whether there is a first slot is enough to decide whether to fall back.
+      if (!slots.hasNext() && !mandatoryAttendees.isEmpty()) {
+        slots = new SlotIterator(mandatoryAttendees, calendar, meetingDuration, notBefore);
+      }
+    }
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(slots,
+        Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), /* parallel= */ false);
+  }
+
+  /**
+  * Returns time ranges that satisfy meeting request requirements by scanning a compact table of
+  * every event. Build the {@link EventTable} once and reuse it across queries.
+  *
+  * @param table primitive-backed table of the events happening during the day
+  * @param request request for meeting with specified requirements (duration, attendees)
+  * @return collection of time ranges that requested meeting can be held at.
+  */
+  public Collection<TimeRange> query(EventTable table, MeetingRequest request) {
+    return query(request, TimeRange.WHOLE_DAY.duration(), TimeRange.WHOLE_DAY, table.isEmpty(),
+        (meetingAttendees, meetingDuration) ->
+            availableTimeRanges(meetingAttendees, table, meetingDuration));
+  }
+
+  /**
+  * Returns time ranges within {@code window} that satisfy meeting request requirements. The window
+  * can span any number of days. Only the events overlapping the window are read, and each
+  * attendee's are found with an interval tree lookup rather than by scanning their calendar.
+  *
+  * @param timeline index over events that may span many days
+  * @param request request for meeting with specified requirements (duration, attendees)
+  * @param window the time to search for meeting times in
+  * @return collection of time ranges within {@code window} that requested meeting can be held at.
+  */
+  public Collection<EpochTimeRange> query(EventTimeline timeline, MeetingRequest request,
+            EpochTimeRange window) {
+    return query(request, window.duration(), window, timeline.isEmpty(),
+        (meetingAttendees, meetingDuration) ->
+            availableTimeRanges(meetingAttendees, timeline, window, meetingDuration));
+  }
+
+  /**
+  * Returns the time ranges that fit every mandatory attendee and as many optional attendees as
+  * possible, with the number of optional attendees who can come. Unlike {@link #query}, one busy
+  * optional attendee doesn't exclude the others.
+  * Each optional attendee's busy intervals are turned into the meeting start times they rule out,
+  * and a single sweep over the sorted start and end points of those ranges counts how many optional
+  * attendees are free at each start time, so no subsets of attendees are enumerated.
+  *
+  * @param calendar busy intervals of everyone during the day
+  * @param request request for meeting with specified requirements (duration, attendees)
+  * @return slots that maximize the number of optional attendees, ordered by start time.
+  */
+  public List<OptionalAttendeeSlot> queryMaximizingOptionalAttendees(BusyCalendar calendar,
+            MeetingRequest request) {
+    int meetingDuration = (int) request.getDuration();
+    List<OptionalAttendeeSlot> slots = new ArrayList<>();
+    if (request.getDuration() > TimeRange.WHOLE_DAY.duration()) {
+      return slots;
+    }
+
+    Set<String> optionalAttendees = request.getOptionalAttendees();
+    long[] sweepPoints = unavailableStartTimes(optionalAttendees, calendar, meetingDuration);
+    int nextPoint = 0;
+    int unavailableCount = 0;
+    int bestCount = -1;
+    int runStart = 0;
+    int runEnd = -1;
+
+    for (TimeRange free : availableTimeRanges(request.getAttendees(), calendar, meetingDuration)) {
+      // The meeting can start anywhere in [free.start(), lastStart).
+      int start = free.start();
+      int lastStart = free.end() - meetingDuration + 1;
+      while (start < lastStart) {
+        while (nextPoint < sweepPoints.length && sweepPointTime(sweepPoints[nextPoint]) <= start) {
+          unavailableCount += sweepPointDelta(sweepPoints[nextPoint]);
+          nextPoint++;
+        }
+        int end = nextPoint < sweepPoints.length
+            ? Math.min(sweepPointTime(sweepPoints[nextPoint]), lastStart) : lastStart;
+        int availableCount = optionalAttendees.size() - unavailableCount;
+
+        if (availableCount > bestCount) {
+          slots.clear();
+          bestCount = availableCount;
+          runEnd = -1;
+        }
+        if (availableCount == bestCount) {
+          if (start != runEnd) {
+            addSlot(slots, runStart, runEnd, meetingDuration, bestCount);
+            runStart = start;
+          }
+          runEnd = end;
+        }
+        start = end;
+      }
+    }
+    addSlot(slots, runStart, runEnd, meetingDuration, bestCount);
+    return slots;
+  }
+
+  /**
+  * Returns the time ranges that fit the meeting's attendees, each paired with a room that is big
+  * enough for them and free for the whole range. A range is split where rooms become busy, and a
+  * range that several rooms could host appears once for each of them.
+  * The attendees' merged free time is computed once, and then intersected with each room's busy
+  * intervals in a single sweep over both sorted lists, so the cost grows linearly with the number
+  * of rooms. As with {@link #query}, optional attendees are dropped if no room and time fits
+  * everyone.
+  *
+  * @param calendar busy intervals of everyone during the day
+  * @param roomCalendar busy intervals of the rooms, keyed by room name
+  * @param rooms the rooms the meeting may be held in
+  * @param request request for meeting with specified requirements (duration, attendees)
+  * @return pairs of time range and room, ordered by start time and then room name.
+  */
+  public List<RoomSlot> queryWithRooms(BusyCalendar calendar, BusyCalendar roomCalendar,
+            Collection<Room> rooms, MeetingRequest request) {
     Set<String> mandatoryAttendees = request.getAttendees();
     Set<String> optionalAndMandatoryAttendees = new ImmutableSet.Builder<String>()
           .addAll(request.getOptionalAttendees())
           .addAll(mandatoryAttendees)
           .build();
     long meetingDuration = request.getDuration();
-    
     if (meetingDuration > TimeRange.WHOLE_DAY.duration()) {
+      return new ArrayList<>();
+    }
+
+    List<RoomSlot> slots = roomSlots(optionalAndMandatoryAttendees, calendar, roomCalendar, rooms,
+        meetingDuration);
+    if (slots.isEmpty() && !mandatoryAttendees.isEmpty()) {
+      slots = roomSlots(mandatoryAttendees, calendar, roomCalendar, rooms, meetingDuration);
+    }
+    return slots;
+  }
+
+  private List<RoomSlot> roomSlots(Set<String> meetingAttendees, BusyCalendar calendar,
+            BusyCalendar roomCalendar, Collection<Room> rooms, long meetingDuration) {
+    List<RoomSlot> slots = new ArrayList<>();
+    List<TimeRange> freeTimes =
+        new ArrayList<>(availableTimeRanges(meetingAttendees, calendar, meetingDuration));
+    if (freeTimes.isEmpty()) {
+      return slots;
+    }
+
+    for (Room room : rooms) {
+      if (room.getCapacity() < meetingAttendees.size()) {
+        continue;
+      }
+      IntervalList roomBusy = roomCalendar.getBusyIntervals(room.getName());
+      int busyIndex = 0;
+      for (TimeRange free : freeTimes) {
+        // Walk the room's bookings that start before this free range ends, cutting the range
+        // around them.
+        int freeFrom = free.start();
+        while (busyIndex < roomBusy.size() && roomBusy.start(busyIndex) < free.end()) {
+          int busyStart = roomBusy.start(busyIndex);
+          int busyEnd = roomBusy.end(busyIndex);
+          if (busyStart - freeFrom >= meetingDuration) {
+            slots.add(new RoomSlot(TimeRange.fromStartEnd(freeFrom, busyStart, false), room));
+          }
+          freeFrom = max(freeFrom, busyEnd);
+          if (busyEnd > free.end()) {
+            // This booking may also overlap the next free range.
+            break;
+          }
+          busyIndex++;
+        }
+        // A meeting at the end of the day must finish by END_OF_DAY, as in the attendee merge.
+        int latestEnd =
+            free.end() == TimeRange.WHOLE_DAY.end() ? TimeRange.END_OF_DAY : free.end();
+        if (latestEnd - freeFrom >= meetingDuration) {
+          slots.add(new RoomSlot(TimeRange.fromStartEnd(freeFrom, free.end(), false), room));
+        }
+      }
+    }
+    Collections.sort(slots, RoomSlot.ORDER_BY_START);
+    return slots;
+  }
+
+  /** Adds the slot for a run of start times {@code [runStart, runEnd)}, if there is one. */
+  private static void addSlot(List<OptionalAttendeeSlot> slots, int runStart, int runEnd,
+            int meetingDuration, int optionalAttendeeCount) {
+    if (runEnd > runStart) {
+      slots.add(new OptionalAttendeeSlot(TimeRange.fromStartEnd(runStart,
+            runEnd - 1 + meetingDuration, /* inclusive= */ false), optionalAttendeeCount));
+    }
+  }
+
+  /**
+  * Returns the sorted sweep points for the meeting start times each optional attendee can't make.
+  * A busy interval {@code [s, e)} rules out every start time in {@code [s - duration + 1, e)}.
+  * Each attendee's ruled out ranges are merged first so that nobody is counted twice. A point packs
+  * its time and whether it opens or closes a range into one long, so the points sort as primitives.
+  */
+  private static long[] unavailableStartTimes(Set<String> optionalAttendees, BusyCalendar calendar,
+            int meetingDuration) {
+    long[] points = new long[16];
+    int size = 0;
+    for (String attendee : optionalAttendees) {
+      IntervalList busyIntervals = calendar.getBusyIntervals(attendee);
+      int i = 0;
+      while (i < busyIntervals.size()) {
+        int rangeStart = busyIntervals.start(i) - meetingDuration + 1;
+        int rangeEnd = busyIntervals.end(i);
+        // Intervals are sorted by start, so later ones can only extend the current range.
+        for (i++; i < busyIntervals.size()
+              && busyIntervals.start(i) - meetingDuration + 1 <= rangeEnd; i++) {
+          rangeEnd = max(rangeEnd, busyIntervals.end(i));
+        }
+        if (rangeEnd <= rangeStart) {
+          continue;
+        }
+        if (size + 2 > points.length) {
+          points = Arrays.copyOf(points, points.length * 2);
+        }
+        points[size++] = ((long) rangeStart << 1) | 1;
+        points[size++] = (long) rangeEnd << 1;
+      }
+    }
+    points = Arrays.copyOf(points, size);
+    Arrays.sort(points);
+    return points;
+  }
+
+  private static int sweepPointTime(long point) {
+    return (int) (point >> 1);
+  }
+
+  private static int sweepPointDelta(long point) {
+    return (point & 1) == 1 ? 1 : -1;
+  }
+
+  private <T> Collection<T> query(MeetingRequest request, long windowDuration, T wholeWindow,
+            boolean noEvents, AvailabilityFinder<T> finder) {
+    Set<String> mandatoryAttendees = request.getAttendees();
+    Set<String> optionalAndMandatoryAttendees = new ImmutableSet.Builder<String>()
+          .addAll(request.getOptionalAttendees())
+          .addAll(mandatoryAttendees)
+          .build();
+    long meetingDuration = request.getDuration();
+    
+    if (meetingDuration > windowDuration) {
       return new ArrayList();
     }
     
-    if (events.isEmpty()) {
-      return Arrays.asList(TimeRange.WHOLE_DAY);
+    if (noEvents) {
+      return Arrays.asList(wholeWindow);
     }
 
-    Collection<TimeRange> availableTimes = 
-          availableTimeRanges(optionalAndMandatoryAttendees, events, meetingDuration);
+    Collection<T> availableTimes = 
+          finder.availableTimeRanges(optionalAndMandatoryAttendees, meetingDuration);
 
     // If time slots exists that both mandatory and optional attendees can attend, return those.
     // Otherwise, return time slots that just fit mandatory attendees.
     boolean noAvailableTimesWithOptionalAttendees = 
             availableTimes.isEmpty() && !mandatoryAttendees.isEmpty();
     return noAvailableTimesWithOptionalAttendees ? 
-      availableTimeRanges(mandatoryAttendees, events, meetingDuration) : availableTimes; 
+      finder.availableTimeRanges(mandatoryAttendees, meetingDuration) : availableTimes; 
   }
 
   /**
   * Returns time ranges for meeting given list of meeting attendees.
+  * Only the busy intervals of {@code meetingAttendees} are read. Their posting lists are already
+  * sorted, so they are combined in start order with a k-way merge instead of sorting every event.
+  * Large attendee sets are instead merged in parallel into a single list first.
   *
-  * @param events collection of events happening during the day
   * @param meetingAttendees collection of meeting attendees
+  * @param calendar busy intervals of everyone during the day
   * @param meetingDuration length of meeting in minutes
   * @return collection of time ranges that requested meeting can be held at 
   */
   private Collection<TimeRange> availableTimeRanges(Set<String> meetingAttendees,
-            Collection<Event> events, long meetingDuration) {
+            BusyCalendar calendar, long meetingDuration) {
     Collection<TimeRange> availableTimes = new ArrayList();
-    List<Event> eventsList = new ArrayList(events);
-
-    // Order events by start time.
-    Collections.sort(eventsList, Event.ORDER_BY_START);
+    PriorityQueue<IntervalCursor> cursors = new PriorityQueue<>(max(1, meetingAttendees.size()));
+    if (meetingAttendees.size() >= parallelThreshold) {
+      IntervalList[] busyIntervals = new IntervalList[meetingAttendees.size()];
+      int i = 0;
+      for (String attendee : meetingAttendees) {
+        busyIntervals[i++] = calendar.getBusyIntervals(attendee);
+      }
+      IntervalList merged = pool.invoke(new MergeBusyIntervalsTask(busyIntervals));
+      if (merged.size() > 0) {
+        cursors.add(new IntervalCursor(merged));
+      }
+    } else {
+      for (String attendee : meetingAttendees) {
+        IntervalList busyIntervals = calendar.getBusyIntervals(attendee);
+        if (busyIntervals.size() > 0) {
+          cursors.add(new IntervalCursor(busyIntervals));
+        }
+      }
+    }
     int previousEndTime = TimeRange.START_OF_DAY;
 
-    for (Event event : eventsList){
-      // Check if meeting attendees are event attendees.
-      if (!Collections.disjoint(event.getAttendees(), meetingAttendees)) {
-        int eventStart = event.getWhen().start();
-        int eventEnd = event.getWhen().end();
+    while (!cursors.isEmpty()) {
+      IntervalCursor cursor = cursors.poll();
+      int eventStart = cursor.start();
+      int eventEnd = cursor.end();
 
-        // Check if there is time to hold meeting before event starts.
-        if (previousEndTime + meetingDuration <= eventStart) {
-          availableTimes.add(TimeRange.fromStartEnd(previousEndTime, eventStart,
-                /* inclusive= */ false));
-        }
+      // Check if there is time to hold meeting before event starts.
+      if (previousEndTime + meetingDuration <= eventStart) {
+        availableTimes.add(TimeRange.fromStartEnd(previousEndTime, eventStart,
+              /* inclusive= */ false));
+      }
+
+      // Considers nested event: event B is checked second and previousEndTime > event B's end.
+      // In this case, we do not want to assign previousEndTime to be an earlier end time.
+      // Events  :       |----A----|
+      //                   |--B--|
+      
+      // Day     : |---------------------|
+      // Options : |--1--|         |--2--|
+      previousEndTime = max(eventEnd, previousEndTime);
 
-        // Considers nested event: event B is checked second and previousEndTime > event B's end.
-        // In this case, we do not want to assign previousEndTime to be an earlier end time.
-        // Events  :       |----A----|
-        //                   |--B--|
-        
-        // Day     : |---------------------|
-        // Options : |--1--|         |--2--|
-        previousEndTime = max(eventEnd, previousEndTime);
+      if (cursor.advance()) {
+        cursors.add(cursor);
       }
     }
 
@@ -111,4 +478,228 @@ public final class FindMeetingQuery {
     }
     return availableTimes;
   }
+
+  /**
+  * Returns time ranges for meeting given list of meeting attendees.
+  * The table is already sorted by start time, so the events are scanned in order and only the
+  * ones {@code meetingAttendees} go to are considered. Attendees are compared by interned id.
+  *
+  * @param meetingAttendees collection of meeting attendees
+  * @param table primitive-backed table of the events happening during the day
+  * @param meetingDuration length of meeting in minutes
+  * @return collection of time ranges that requested meeting can be held at
+  */
+  private Collection<TimeRange> availableTimeRanges(Set<String> meetingAttendees,
+            EventTable table, long meetingDuration) {
+    Collection<TimeRange> availableTimes = new ArrayList<>();
+    AttendeeSet attendeeIds = table.getRegistry().lookup(meetingAttendees);
+    int previousEndTime = TimeRange.START_OF_DAY;
+
+    for (int i = 0; i < table.size(); i++) {
+      if (!table.hasAnyAttendee(i, attendeeIds)) {
+        continue;
+      }
+      int eventStart = table.start(i);
+
+      if (previousEndTime + meetingDuration <= eventStart) {
+        availableTimes.add(TimeRange.fromStartEnd(previousEndTime, eventStart,
+              /* inclusive= */ false));
+      }
+      previousEndTime = max(table.end(i), previousEndTime);
+    }
+
+    if (meetingDuration + previousEndTime <= TimeRange.END_OF_DAY) {
+      availableTimes.add(TimeRange.fromStartEnd(previousEndTime, TimeRange.END_OF_DAY,
+                /* inclusive= */ true));
+    }
+    return availableTimes;
+  }
+
+  /**
+  * Returns time ranges within {@code window} for meeting given list of meeting attendees.
+  * Each attendee's busy intervals overlapping the window come from their interval tree already in
+  * start order, so they are combined with the same k-way merge as for a single day.
+  *
+  * @param meetingAttendees collection of meeting attendees
+  * @param timeline index over events that may span many days
+  * @param window the time to search for meeting times in
+  * @param meetingDuration length of meeting in minutes
+  * @return collection of time ranges that requested meeting can be held at
+  */
+  private Collection<EpochTimeRange> availableTimeRanges(Set<String> meetingAttendees,
+            EventTimeline timeline, EpochTimeRange window, long meetingDuration) {
+    Collection<EpochTimeRange> availableTimes = new ArrayList<>();
+    PriorityQueue<EpochIntervalCursor> cursors =
+        new PriorityQueue<>(max(1, meetingAttendees.size()));
+    for (String attendee : meetingAttendees) {
+      EpochIntervalTree busyIntervals = timeline.getBusyIntervals(attendee);
+      int[] positions = busyIntervals.overlapping(window.start(), window.end());
+      if (positions.length > 0) {
+        cursors.add(new EpochIntervalCursor(busyIntervals, positions));
+      }
+    }
+    long previousEndTime = window.start();
+
+    while (!cursors.isEmpty()) {
+      EpochIntervalCursor cursor = cursors.poll();
+      long eventStart = cursor.start();
+
+      if (previousEndTime + meetingDuration <= eventStart) {
+        availableTimes.add(EpochTimeRange.fromStartEnd(previousEndTime, eventStart,
+              /* inclusive= */ false));
+      }
+      previousEndTime = max(cursor.end(), previousEndTime);
+
+      if (cursor.advance()) {
+        cursors.add(cursor);
+      }
+    }
+
+    // Add the remaining time of the window. Events that start before the window or end after it
+    // only ever shrink the first and last ranges.
+    if (previousEndTime + meetingDuration <= window.end()) {
+      availableTimes.add(EpochTimeRange.fromStartEnd(previousEndTime, window.end(),
+            /* inclusive= */ false));
+    }
+    return availableTimes;
+  }
+
+  /** Finds the free time ranges shared by a set of attendees. */
+  private interface AvailabilityFinder<T> {
+    Collection<T> availableTimeRanges(Set<String> meetingAttendees, long meetingDuration);
+  }
+
+  /**
+   * Position within one attendee's busy intervals during a k-way merge, ordered by the start of the
+   * current interval.
+   */
+  private static final class IntervalCursor implements Comparable<IntervalCursor> {
+    private final IntervalList intervals;
+    private int position;
+
+    IntervalCursor(IntervalList intervals) {
+      this(intervals, 0);
+    }
+
+    IntervalCursor(IntervalList intervals, int position) {
+      this.intervals = intervals;
+      this.position = position;
+    }
+
+    int start() {
+      return intervals.start(position);
+    }
+
+    int end() {
+      return intervals.end(position);
+    }
+
+    /** Moves to the next interval, returning false if there are none left. */
+    boolean advance() {
+      return ++position < intervals.size();
+    }
+
+    @Override
+    public int compareTo(IntervalCursor other) {
+      return Integer.compare(start(), other.start());
+    }
+  }
+
+  /**
+   * Position within the overlapping intervals of one attendee's interval tree during a k-way merge,
+   * ordered by the start of the current interval.
+   */
+  private static final class EpochIntervalCursor implements Comparable<EpochIntervalCursor> {
+    private final EpochIntervalTree intervals;
+    private final int[] positions;
+    private int position;
+
+    EpochIntervalCursor(EpochIntervalTree intervals, int[] positions) {
+      this.intervals = intervals;
+      this.positions = positions;
+    }
+
+    long start() {
+      return intervals.start(positions[position]);
+    }
+
+    long end() {
+      return intervals.end(positions[position]);
+    }
+
+    /** Moves to the next interval, returning false if there are none left. */
+    boolean advance() {
+      return ++position < positions.length;
+    }
+
+    @Override
+    public int compareTo(EpochIntervalCursor other) {
+      return Long.compare(start(), other.start());
+    }
+  }
+
+  /**
+   * Finds the free ranges of a set of attendees one at a time, with the same k-way merge as
+   * {@link #availableTimeRanges(Set, BusyCalendar, long)}.
+   */
+  private static final class SlotIterator implements Iterator<TimeRange> {
+    private final PriorityQueue<IntervalCursor> cursors;
+    private final long meetingDuration;
+    private int previousEndTime;
+    private boolean dayFinished;
+    private TimeRange next;
+
+    SlotIterator(Set<String> meetingAttendees, BusyCalendar calendar, long meetingDuration,
+            int notBefore) {
+      this.cursors = new PriorityQueue<>(max(1, meetingAttendees.size()));
+      this.meetingDuration = meetingDuration;
+      this.previousEndTime = max(notBefore, TimeRange.START_OF_DAY);
+      for (String attendee : meetingAttendees) {
+        IntervalList busyIntervals = calendar.getBusyIntervals(attendee);
+        // Skip the intervals that start before notBefore, but stay busy until the latest of them
+        // ends.
+        int position = busyIntervals.firstStartingAtOrAfter(previousEndTime);
+        previousEndTime = max(previousEndTime, busyIntervals.maxEndBefore(position));
+        if (position < busyIntervals.size()) {
+          cursors.add(new IntervalCursor(busyIntervals, position));
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && !dayFinished) {
+        if (cursors.isEmpty()) {
+          dayFinished = true;
+          // Add remaining time of the day to available meeting time.
+          if (meetingDuration + previousEndTime <= TimeRange.END_OF_DAY) {
+            next = TimeRange.fromStartEnd(previousEndTime, TimeRange.END_OF_DAY,
+                  /* inclusive= */ true);
+          }
+          break;
+        }
+
+        IntervalCursor cursor = cursors.poll();
+        int eventStart = cursor.start();
+        if (previousEndTime + meetingDuration <= eventStart) {
+          next = TimeRange.fromStartEnd(previousEndTime, eventStart, /* inclusive= */ false);
+        }
+        previousEndTime = max(cursor.end(), previousEndTime);
+        if (cursor.advance()) {
+          cursors.add(cursor);
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public TimeRange next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      TimeRange slot = next;
+      next = null;
+      return slot;
+    }
+  }
 }
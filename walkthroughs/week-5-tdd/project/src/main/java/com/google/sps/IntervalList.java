@@ -0,0 +1,116 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+
+/**
+ * A read-only list of half-open {@code [start, end)} minute intervals kept in two primitive arrays,
+ * ordered by start time. Used for the busy time of a single attendee.
+ */
+public final class IntervalList {
+  static final IntervalList EMPTY = new IntervalList(new int[0], new int[0], 0);
+
+  private final int[] starts;
+  private final int[] ends;
+  // The largest end among the intervals up to and including each index, so that a search can
+  // start part way through the list and still know whether earlier intervals run past it.
+  private final int[] maxEnds;
+  private final int size;
+
+  private IntervalList(int[] starts, int[] ends, int size) {
+    this.starts = starts;
+    this.ends = ends;
+    this.size = size;
+    this.maxEnds = new int[size];
+    for (int i = 0; i < size; i++) {
+      maxEnds[i] = i == 0 ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+    }
+  }
+
+  /**
+   * Returns the number of intervals.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the start of the interval at {@code index}.
+   */
+  public int start(int index) {
+    return starts[index];
+  }
+
+  /**
+   * Returns the exclusive end of the interval at {@code index}.
+   */
+  public int end(int index) {
+    return ends[index];
+  }
+
+  /**
+   * Returns the index of the first interval that starts at or after {@code time}, or the size of
+   * the list if there is none.
+   */
+  int firstStartingAtOrAfter(int time) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (starts[mid] < time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the largest end among the intervals before {@code index}, or {@code Integer.MIN_VALUE}
+   * if there are none.
+   */
+  int maxEndBefore(int index) {
+    return index == 0 ? Integer.MIN_VALUE : maxEnds[index - 1];
+  }
+
+  /**
+   * Builds an {@code IntervalList}. Intervals must be added in ascending order of start time.
+   */
+  static final class Builder {
+    private int[] starts = new int[4];
+    private int[] ends = new int[4];
+    private int size;
+
+    Builder add(int start, int end) {
+      if (size > 0 && start < starts[size - 1]) {
+        throw new IllegalArgumentException("Intervals must be added in order of start time.");
+      }
+      if (size == starts.length) {
+        starts = Arrays.copyOf(starts, size * 2);
+        ends = Arrays.copyOf(ends, size * 2);
+      }
+      starts[size] = start;
+      ends[size] = end;
+      size++;
+      return this;
+    }
+
+    IntervalList build() {
+      return new IntervalList(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size), size);
+    }
+  }
+}
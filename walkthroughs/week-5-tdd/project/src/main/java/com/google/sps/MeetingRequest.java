@@ -31,6 +31,11 @@ public final class MeetingRequest {
   // The duration of the meeting in minutes.
   private final long duration;
 
+  // Used by Gson so that the attendee sets are initialized even if the JSON leaves them out.
+  private MeetingRequest() {
+    this.duration = 0;
+  }
+
   public MeetingRequest(Set<String> attendees, long duration) {
     this.duration = duration;
     this.attendees.addAll(attendees);
@@ -0,0 +1,100 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Merges the busy intervals of many attendees into one list as a parallel reduction. The attendees
+ * are split in half until a part is small enough to merge directly, and the merged halves are
+ * combined with a linear two-way merge on the way back up.
+ *
+ * <p>Intervals that strictly overlap are joined into one. Intervals that only touch are kept
+ * apart, and so are intervals with no duration, so the merged list produces exactly the same free
+ * ranges as merging every interval in start order.
+ */
+final class MergeBusyIntervalsTask extends RecursiveTask<IntervalList> {
+  // Below this many attendees, forking costs more than it saves.
+  private static final int SEQUENTIAL_THRESHOLD = 32;
+
+  private final IntervalList[] busyIntervals;
+  private final int from;
+  private final int to;
+
+  MergeBusyIntervalsTask(IntervalList[] busyIntervals) {
+    this(busyIntervals, 0, busyIntervals.length);
+  }
+
+  private MergeBusyIntervalsTask(IntervalList[] busyIntervals, int from, int to) {
+    this.busyIntervals = busyIntervals;
+    this.from = from;
+    this.to = to;
+  }
+
+  @Override
+  protected IntervalList compute() {
+    if (to - from == 0) {
+      return IntervalList.EMPTY;
+    }
+    if (to - from == 1) {
+      return merge(busyIntervals[from], IntervalList.EMPTY);
+    }
+    int mid = (from + to) >>> 1;
+    MergeBusyIntervalsTask left = new MergeBusyIntervalsTask(busyIntervals, from, mid);
+    MergeBusyIntervalsTask right = new MergeBusyIntervalsTask(busyIntervals, mid, to);
+    if (to - from <= SEQUENTIAL_THRESHOLD) {
+      return merge(left.compute(), right.compute());
+    }
+    left.fork();
+    IntervalList rightMerged = right.compute();
+    return merge(left.join(), rightMerged);
+  }
+
+  /** Merges two lists sorted by start time into one list of merged intervals. */
+  static IntervalList merge(IntervalList a, IntervalList b) {
+    IntervalList.Builder merged = new IntervalList.Builder();
+    int i = 0;
+    int j = 0;
+    boolean open = false;
+    int mergedStart = 0;
+    int mergedEnd = 0;
+    while (i < a.size() || j < b.size()) {
+      int start;
+      int end;
+      if (j == b.size() || (i < a.size() && a.start(i) <= b.start(j))) {
+        start = a.start(i);
+        end = a.end(i++);
+      } else {
+        start = b.start(j);
+        end = b.end(j++);
+      }
+
+      if (open && start < mergedEnd) {
+        mergedEnd = Math.max(mergedEnd, end);
+      } else {
+        if (open) {
+          merged.add(mergedStart, mergedEnd);
+        }
+        open = true;
+        mergedStart = start;
+        mergedEnd = end;
+      }
+    }
+    if (open) {
+      merged.add(mergedStart, mergedEnd);
+    }
+    return merged.build();
+  }
+}
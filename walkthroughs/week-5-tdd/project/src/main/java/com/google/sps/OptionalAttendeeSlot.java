@@ -0,0 +1,73 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+/**
+ * A time range a meeting can be held in, together with how many of the meeting's optional
+ * attendees are free for the whole meeting if it starts anywhere in that range. Slots are
+ * considered read-only.
+ */
+public final class OptionalAttendeeSlot {
+  private final TimeRange when;
+  private final int optionalAttendeeCount;
+
+  /**
+   * Creates a new slot.
+   *
+   * @param when The time range the meeting can be held in. Must be non-null.
+   * @param optionalAttendeeCount The number of optional attendees who are free.
+   */
+  public OptionalAttendeeSlot(TimeRange when, int optionalAttendeeCount) {
+    if (when == null) {
+      throw new IllegalArgumentException("when cannot be null");
+    }
+
+    this.when = when;
+    this.optionalAttendeeCount = optionalAttendeeCount;
+  }
+
+  /**
+   * Returns the {@code TimeRange} the meeting can be held in.
+   */
+  public TimeRange getWhen() {
+    return when;
+  }
+
+  /**
+   * Returns the number of optional attendees who can attend a meeting held in this slot.
+   */
+  public int getOptionalAttendeeCount() {
+    return optionalAttendeeCount;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s with %d optional attendees", when, optionalAttendeeCount);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * when.hashCode() + optionalAttendeeCount;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof OptionalAttendeeSlot && equals(this, (OptionalAttendeeSlot) other);
+  }
+
+  private static boolean equals(OptionalAttendeeSlot a, OptionalAttendeeSlot b) {
+    return a.when.equals(b.when) && a.optionalAttendeeCount == b.optionalAttendeeCount;
+  }
+}
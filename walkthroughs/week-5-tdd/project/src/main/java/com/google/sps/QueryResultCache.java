@@ -0,0 +1,223 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A bounded, thread-safe LRU cache of meeting query results. Requests with the same mandatory
+ * attendees, optional attendees and duration share an entry, whatever order the attendees were
+ * given in.
+ *
+ * <p>Every attendee maps to the entries whose requests include them, so when an attendee's events
+ * change only those entries are dropped. Every invalidation also bumps a generation number so that
+ * a result computed before a change can't be cached after it.
+ */
+public final class QueryResultCache implements EventStore.ChangeListener {
+  // Enough for the requests of many users tweaking the same few meetings.
+  public static final int DEFAULT_CAPACITY = 1000;
+
+  private static final QueryResultCache INSTANCE = createInstance();
+
+  private final int capacity;
+  private final Map<Key, Collection<TimeRange>> results;
+  private final Map<String, Set<Key>> keysByAttendee = new HashMap<>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private long generation;
+
+  /**
+   * Creates a cache holding at most {@code capacity} results.
+   */
+  public QueryResultCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+
+    this.capacity = capacity;
+    this.results = new LinkedHashMap<Key, Collection<TimeRange>>(
+        16, 0.75f, /* accessOrder= */ true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Collection<TimeRange>> eldest) {
+        if (size() <= QueryResultCache.this.capacity) {
+          return false;
+        }
+        unindex(eldest.getKey());
+        return true;
+      }
+    };
+  }
+
+  private static QueryResultCache createInstance() {
+    QueryResultCache cache = new QueryResultCache(DEFAULT_CAPACITY);
+    EventStore.getInstance().addChangeListener(cache);
+    return cache;
+  }
+
+  /**
+   * Returns the cache for queries against {@link EventStore#getInstance()}.
+   */
+  public static QueryResultCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the cached result for {@code request}, if there is one.
+   */
+  public synchronized Optional<Collection<TimeRange>> get(MeetingRequest request) {
+    Collection<TimeRange> result = results.get(new Key(request));
+    (result == null ? misses : hits).incrementAndGet();
+    return Optional.ofNullable(result);
+  }
+
+  /**
+   * Returns a token to pass to {@link #put}, taken before computing the result.
+   */
+  public synchronized long generation() {
+    return generation;
+  }
+
+  /**
+   * Caches {@code result} for {@code request} unless any attendee's events changed since the
+   * generation was taken.
+   */
+  public synchronized void put(long computedGeneration, MeetingRequest request,
+      Collection<TimeRange> result) {
+    if (computedGeneration != generation) {
+      return;
+    }
+    Key key = new Key(request);
+    if (results.put(key, ImmutableList.copyOf(result)) == null) {
+      for (String attendee : key.attendees()) {
+        keysByAttendee.computeIfAbsent(attendee, unused -> new HashSet<>()).add(key);
+      }
+    }
+  }
+
+  /**
+   * Returns the cached result for {@code request}, computing and caching it on a miss.
+   */
+  public Collection<TimeRange> get(MeetingRequest request,
+      Function<MeetingRequest, Collection<TimeRange>> query) {
+    Optional<Collection<TimeRange>> cached = get(request);
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+    long computedGeneration = generation();
+    Collection<TimeRange> result = query.apply(request);
+    put(computedGeneration, request, result);
+    return result;
+  }
+
+  @Override
+  public synchronized void attendeesChanged(Set<String> attendees) {
+    generation++;
+    for (String attendee : attendees) {
+      Set<Key> keys = keysByAttendee.get(attendee);
+      if (keys == null) {
+        continue;
+      }
+      for (Key key : ImmutableList.copyOf(keys)) {
+        results.remove(key);
+        unindex(key);
+      }
+    }
+  }
+
+  /**
+   * Drops every cached result.
+   */
+  public synchronized void invalidateAll() {
+    generation++;
+    results.clear();
+    keysByAttendee.clear();
+  }
+
+  public synchronized int size() {
+    return results.size();
+  }
+
+  public long hitCount() {
+    return hits.get();
+  }
+
+  public long missCount() {
+    return misses.get();
+  }
+
+  /**
+   * Returns the fraction of lookups answered from the cache, or 0 if there have been none.
+   */
+  public double hitRate() {
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  private void unindex(Key key) {
+    for (String attendee : key.attendees()) {
+      Set<Key> keys = keysByAttendee.get(attendee);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          keysByAttendee.remove(attendee);
+        }
+      }
+    }
+  }
+
+  /** The canonical form of a request. Sets compare equal whatever order they were built in. */
+  private static final class Key {
+    private final ImmutableSet<String> mandatory;
+    private final ImmutableSet<String> optional;
+    private final long duration;
+
+    Key(MeetingRequest request) {
+      this.mandatory = ImmutableSet.copyOf(request.getAttendees());
+      this.optional = ImmutableSet.copyOf(request.getOptionalAttendees());
+      this.duration = request.getDuration();
+    }
+
+    Iterable<String> attendees() {
+      return Iterables.concat(mandatory, optional);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) other;
+      return duration == that.duration && mandatory.equals(that.mandatory)
+          && optional.equals(that.optional);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * mandatory.hashCode() + optional.hashCode()) + Long.hashCode(duration);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.BatchMeetingQuery;
+import com.google.sps.EventStore;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers a JSON array of meeting requests with a JSON array of answers in the same order. Each
+ * answer is written as soon as it and the ones before it are ready.
+ */
+@WebServlet("/query-batch")
+public class BatchQueryServlet extends HttpServlet {
+  // Bounds the work a single request can queue on the shared pool.
+  private static final int MAX_BATCH_SIZE = 100;
+
+  private static final Type REQUESTS_TYPE = new TypeToken<List<MeetingRequest>>() {}.getType();
+  private static final Type ANSWER_TYPE = new TypeToken<Collection<TimeRange>>() {}.getType();
+
+  private final Gson gson = new Gson();
+  private BatchMeetingQuery batchMeetingQuery;
+
+  @Override
+  public void init() {
+    batchMeetingQuery =
+        new BatchMeetingQuery(EventStore.getInstance(), ForkJoinPool.commonPool());
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    List<MeetingRequest> meetingRequests;
+    try {
+      meetingRequests = gson.fromJson(request.getReader(), REQUESTS_TYPE);
+    } catch (JsonParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid meeting requests");
+      return;
+    }
+    if (meetingRequests == null || meetingRequests.size() > MAX_BATCH_SIZE
+        || meetingRequests.contains(null)) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+          "Expected an array of at most " + MAX_BATCH_SIZE + " meeting requests");
+      return;
+    }
+
+    List<ForkJoinTask<Collection<TimeRange>>> answers = batchMeetingQuery.submit(meetingRequests);
+
+    response.setContentType("application/json");
+    JsonWriter writer = gson.newJsonWriter(response.getWriter());
+    writer.beginArray();
+    for (ForkJoinTask<Collection<TimeRange>> answer : answers) {
+      gson.toJson(answer.join(), ANSWER_TYPE, writer);
+      writer.flush();
+    }
+    writer.endArray();
+    writer.flush();
+  }
+}
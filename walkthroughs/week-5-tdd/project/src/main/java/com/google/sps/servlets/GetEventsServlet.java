@@ -14,23 +14,100 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.Events;
+import com.google.common.collect.ImmutableSet;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import com.google.sps.TimeRange;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+/**
+ * Serves the events in the calendar as JSON. Optional {@code attendee} parameters (repeatable)
+ * narrow the feed to the events of those people, and {@code start} and {@code end} parameters in
+ * minutes narrow it to the events overlapping that part of the day.
+ */
 @WebServlet("/get-events")
 public class GetEventsServlet extends HttpServlet {
+  private static final String ATTENDEE_PARAM = "attendee";
+  private static final String START_PARAM = "start";
+  private static final String END_PARAM = "end";
+
+  private static final Gson GSON = new Gson();
+
+  // The unfiltered feed, encoded once for each version of the store.
+  private volatile EncodedFeed encodedFeed;
+
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Gson gson = new Gson();
-    String jsonResponse = gson.toJson(Events.events);
+    EventStore store = EventStore.getInstance();
+    String[] attendees = request.getParameterValues(ATTENDEE_PARAM);
+    String startParam = request.getParameter(START_PARAM);
+    String endParam = request.getParameter(END_PARAM);
 
-    // Send the JSON back as the response
     response.setContentType("application/json");
-    response.getWriter().println(jsonResponse);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+    if (attendees == null && startParam == null && endParam == null) {
+      byte[] feed = unfilteredFeed(store);
+      response.setContentLength(feed.length);
+      response.getOutputStream().write(feed);
+      return;
+    }
+
+    TimeRange window;
+    try {
+      int start = startParam == null ? TimeRange.START_OF_DAY : Integer.parseInt(startParam);
+      int end = endParam == null ? TimeRange.WHOLE_DAY.end() : Integer.parseInt(endParam);
+      if (start < TimeRange.START_OF_DAY || end > TimeRange.WHOLE_DAY.end() || start > end) {
+        throw new NumberFormatException();
+      }
+      window = TimeRange.fromStartEnd(start, end, /* inclusive= */ false);
+    } catch (NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+          "start and end must be minutes in the day with start no later than end");
+      return;
+    }
+
+    List<Event> events = attendees == null
+        ? store.getEvents(window) : store.getEvents(ImmutableSet.copyOf(attendees), window);
+
+    // Stream the matching events instead of building the whole response in memory.
+    JsonWriter writer = GSON.newJsonWriter(response.getWriter());
+    writer.beginArray();
+    for (Event event : events) {
+      GSON.toJson(event, Event.class, writer);
+    }
+    writer.endArray();
+    writer.flush();
+  }
+
+  private byte[] unfilteredFeed(EventStore store) {
+    EncodedFeed feed = encodedFeed;
+    // Read the version before the events, so that a change that races with encoding leaves the
+    // feed looking stale rather than current.
+    long version = store.version();
+    if (feed == null || feed.version != version) {
+      feed = new EncodedFeed(version,
+          GSON.toJson(store.getEvents()).getBytes(StandardCharsets.UTF_8));
+      encodedFeed = feed;
+    }
+    return feed.bytes;
+  }
+
+  private static final class EncodedFeed {
+    private final long version;
+    private final byte[] bytes;
+
+    EncodedFeed(long version, byte[] bytes) {
+      this.version = version;
+      this.bytes = bytes;
+    }
   }
 }
@@ -14,14 +14,16 @@
 
 package com.google.sps.servlets;
 
-import com.google.sps.Events;
+import com.google.sps.EventStore;
 import com.google.sps.FindMeetingQuery;
 import com.google.sps.MeetingRequest;
+import com.google.sps.QueryResultCache;
 import com.google.sps.TimeRange;
 import com.google.gson.Gson;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Collectors;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -29,17 +31,51 @@ import javax.servlet.http.HttpServletResponse;
 
 @WebServlet("/query")
 public class QueryServlet extends HttpServlet {
+  // Optional query parameter that caps how many time ranges are returned.
+  private static final String LIMIT_PARAM = "limit";
+
+  private final FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
     Gson gson = new Gson();
 
+    Integer limit = null;
+    String limitParam = request.getParameter(LIMIT_PARAM);
+    if (limitParam != null) {
+      try {
+        limit = Integer.parseInt(limitParam);
+      } catch (NumberFormatException e) {
+        limit = -1;
+      }
+      if (limit < 0) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+            "limit must be a non-negative integer");
+        return;
+      }
+    }
+
     // Convert the JSON to an instance of MeetingRequest.
     MeetingRequest meetingRequest = gson.fromJson(request.getReader(), MeetingRequest.class);
 
-    // Find the possible meeting times.
-    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
-    Collection<TimeRange> answer =
-        findMeetingQuery.query(Arrays.asList(Events.events), meetingRequest);
+    // Find the possible meeting times, reusing the answer to an identical earlier request if none
+    // of its attendees' events have changed since.
+    QueryResultCache cache = QueryResultCache.getInstance();
+    Collection<TimeRange> answer;
+    if (limit == null) {
+      answer = cache.get(meetingRequest,
+          cacheMiss -> findMeetingQuery.query(EventStore.getInstance(), cacheMiss));
+    } else {
+      Optional<Collection<TimeRange>> cached = cache.get(meetingRequest);
+      if (cached.isPresent()) {
+        answer = cached.get().stream().limit(limit).collect(Collectors.toList());
+      } else {
+        // Only find as many time ranges as were asked for. The partial answer isn't cached.
+        answer = findMeetingQuery.availableSlots(EventStore.getInstance(), meetingRequest)
+            .limit(limit)
+            .collect(Collectors.toList());
+      }
+    }
 
     // Convert the times to JSON
     String jsonResponse = gson.toJson(answer);
@@ -0,0 +1,74 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class AttendeeSetTest {
+  @Test
+  public void intersectsMatchesBruteForceForDenseAndSparseSets() {
+    // Mix small dense sets with sparse sets spread over thousands of ids.
+    Random random = new Random(7);
+    AttendeeSet[] sets = new AttendeeSet[60];
+    for (int i = 0; i < sets.length; i++) {
+      int range = i % 2 == 0 ? 128 : 5000;
+      int[] ids = new int[1 + random.nextInt(i % 3 == 0 ? 100 : 4)];
+      for (int j = 0; j < ids.length; j++) {
+        ids[j] = random.nextInt(range);
+      }
+      sets[i] = AttendeeSet.of(ids);
+    }
+
+    for (AttendeeSet a : sets) {
+      for (AttendeeSet b : sets) {
+        boolean expected = false;
+        for (int id = 0; id < 5000 && !expected; id++) {
+          expected = a.contains(id) && b.contains(id);
+        }
+
+        Assert.assertEquals(expected, a.intersects(b));
+      }
+    }
+  }
+
+  @Test
+  public void duplicatesAreCountedOnce() {
+    AttendeeSet set = AttendeeSet.of(3, 1, 3, 2, 1);
+
+    Assert.assertEquals(3, set.size());
+    Assert.assertTrue(set.contains(2));
+    Assert.assertFalse(set.contains(4));
+  }
+
+  @Test
+  public void lookupLeavesOutUnknownNames() {
+    AttendeeRegistry registry = new AttendeeRegistry();
+    AttendeeSet interned = registry.intern(ImmutableSet.of("Person A", "Person B"));
+
+    AttendeeSet lookedUp = registry.lookup(ImmutableSet.of("Person B", "Person C"));
+
+    Assert.assertEquals(2, registry.size());
+    Assert.assertEquals(1, lookedUp.size());
+    Assert.assertTrue(lookedUp.contains(registry.id("Person B")));
+    Assert.assertTrue(interned.intersects(lookedUp));
+  }
+}
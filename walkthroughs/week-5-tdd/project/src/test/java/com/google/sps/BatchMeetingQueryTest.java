@@ -0,0 +1,72 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class BatchMeetingQueryTest {
+  private ForkJoinPool pool;
+
+  @Before
+  public void setUp() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Test
+  public void answersAreInRequestOrderAndMatchSingleQueries() {
+    List<Event> events = Arrays.asList(Events.events);
+    EventIndex index = new EventIndex(events);
+    List<MeetingRequest> requests = new ArrayList<>();
+    for (Event event : events) {
+      requests.add(new MeetingRequest(event.getAttendees(), 30));
+      requests.add(new MeetingRequest(event.getAttendees(), 120));
+    }
+
+    List<Collection<TimeRange>> actual = new BatchMeetingQuery(index, pool).query(requests);
+
+    FindMeetingQuery query = new FindMeetingQuery();
+    List<Collection<TimeRange>> expected = new ArrayList<>();
+    for (MeetingRequest request : requests) {
+      expected.add(query.query(events, request));
+    }
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void emptyBatchHasNoAnswers() {
+    EventIndex index = new EventIndex(Arrays.asList(Events.events));
+
+    Assert.assertEquals(Arrays.asList(),
+        new BatchMeetingQuery(index, pool).query(new ArrayList<>()));
+  }
+}
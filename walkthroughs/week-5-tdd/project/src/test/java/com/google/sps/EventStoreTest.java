@@ -0,0 +1,260 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class EventStoreTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
+  private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+
+  private static final int DURATION_60_MINUTES = 60;
+
+  @Test
+  public void queriesSeeEveryMutation() {
+    // Events  :       |--A--|
+    // Day     : |-----------------------|
+    // Options : |--1--|     |-----2-----|
+    EventStore store = new EventStore();
+    long id = store.add(new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES), ImmutableSet.of(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(ImmutableSet.of(PERSON_A), DURATION_60_MINUTES);
+    FindMeetingQuery query = new FindMeetingQuery();
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0900AM, TimeRange.END_OF_DAY, true)),
+        query.query(store, request));
+
+    // Move the event an hour later.
+    store.update(id, new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES), ImmutableSet.of(PERSON_A)));
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true)),
+        query.query(store, request));
+
+    Assert.assertTrue(store.remove(id));
+    Assert.assertFalse(store.remove(id));
+    Assert.assertEquals(Arrays.asList(TimeRange.WHOLE_DAY), query.query(store, request));
+  }
+
+  @Test
+  public void busyIntervalsMatchRebuiltIndex() {
+    // Add, move and remove overlapping events and change working hours at random, and compare
+    // against a fresh index.
+    Random random = new Random(42);
+    EventStore store = new EventStore();
+    List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      int action = random.nextInt(4);
+      if (action == 3) {
+        TimeRange hours = randomEvent(random, i).getWhen();
+        store.setAvailability(PERSON_A, random.nextBoolean() ? null : Availability.workingHours(
+            TimeRange.fromStartEnd(hours.start(),
+                Math.min(hours.end() + 240, TimeRange.WHOLE_DAY.end()), false)));
+      } else if (action == 0 || ids.isEmpty()) {
+        ids.add(store.add(randomEvent(random, i)));
+      } else if (action == 1) {
+        store.update(ids.get(random.nextInt(ids.size())), randomEvent(random, i));
+      } else {
+        store.remove(ids.remove(random.nextInt(ids.size())));
+      }
+
+      Map<String, Availability> availability = new HashMap<>();
+      store.getAvailability(PERSON_A).ifPresent(hours -> availability.put(PERSON_A, hours));
+      EventIndex index = new EventIndex(store.getEvents(), availability);
+      for (String attendee : Arrays.asList(PERSON_A, PERSON_B)) {
+        Assert.assertEquals(merge(index.getBusyIntervals(attendee)),
+            toList(store.getBusyIntervals(attendee)));
+      }
+    }
+  }
+
+  @Test
+  public void getEventsFiltersByAttendeeAndWindow() {
+    // Events  : |--A--|
+    //                 |--B--|
+    //                    |--A,B--|
+    // Window  :          |----------|
+    Event event1 = new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES), ImmutableSet.of(PERSON_A));
+    Event event2 = new Event("Event 2",
+        TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES), ImmutableSet.of(PERSON_B));
+    Event event3 = new Event("Event 3", TimeRange.fromStartDuration(TIME_0900AM + 30,
+        DURATION_60_MINUTES), ImmutableSet.of(PERSON_A, PERSON_B));
+    EventStore store = new EventStore(Arrays.asList(event3, event1, event2));
+    TimeRange window = TimeRange.fromStartEnd(TIME_0900AM, TimeRange.END_OF_DAY, true);
+
+    Assert.assertEquals(Arrays.asList(event2, event3), store.getEvents(window));
+    Assert.assertEquals(Arrays.asList(event3),
+        store.getEvents(ImmutableSet.of(PERSON_A), window));
+    Assert.assertEquals(Arrays.asList(event1, event3),
+        store.getEvents(ImmutableSet.of(PERSON_A), TimeRange.WHOLE_DAY));
+  }
+
+  @Test
+  public void versionChangesOnEveryMutation() {
+    EventStore store = new EventStore();
+    long initial = store.version();
+    long id = store.add(new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES), ImmutableSet.of(PERSON_A)));
+    long afterAdd = store.version();
+    store.remove(id);
+
+    Assert.assertNotEquals(initial, afterAdd);
+    Assert.assertNotEquals(afterAdd, store.version());
+    Assert.assertEquals(Arrays.asList(), store.getEvents(TimeRange.WHOLE_DAY));
+  }
+
+  @Test
+  public void getEventsFindsLongEventsThatStartedBeforeTheWindow() {
+    Event allDay = new Event("All day", TimeRange.fromStartEnd(TimeRange.START_OF_DAY,
+        TimeRange.getTimeInMinutes(23, 0), false), ImmutableSet.of(PERSON_A));
+    Event morning = new Event("Morning",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES), ImmutableSet.of(PERSON_B));
+    EventStore store = new EventStore(Arrays.asList(allDay, morning));
+    TimeRange evening = TimeRange.fromStartEnd(TimeRange.getTimeInMinutes(22, 0),
+        TimeRange.END_OF_DAY, true);
+
+    Assert.assertEquals(Arrays.asList(allDay), store.getEvents(evening));
+
+    long id = store.add(new Event("Late", TimeRange.fromStartDuration(
+        TimeRange.getTimeInMinutes(22, 30), DURATION_60_MINUTES), ImmutableSet.of(PERSON_B)));
+    store.remove(id);
+
+    Assert.assertEquals(Arrays.asList(allDay), store.getEvents(evening));
+    Assert.assertEquals(Arrays.asList(allDay, morning),
+        store.getEvents(TimeRange.fromStartDuration(TIME_0800AM + 30, 0)));
+  }
+
+  @Test
+  public void mutationsOnlyRebuildTheirAttendeesLists() {
+    EventStore store = new EventStore(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES),
+            ImmutableSet.of(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES),
+            ImmutableSet.of(PERSON_B))));
+    IntervalList personA = store.getBusyIntervals(PERSON_A);
+    IntervalList personB = store.getBusyIntervals(PERSON_B);
+
+    // Reads between mutations share one list.
+    Assert.assertSame(personA, store.getBusyIntervals(PERSON_A));
+
+    store.add(new Event("Event 3", TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES),
+        ImmutableSet.of(PERSON_A)));
+
+    Assert.assertSame(personB, store.getBusyIntervals(PERSON_B));
+    Assert.assertNotSame(personA, store.getBusyIntervals(PERSON_A));
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0800AM, 2 * DURATION_60_MINUTES)),
+        toList(store.getBusyIntervals(PERSON_A)));
+  }
+
+  @Test
+  public void availabilityJoinsEventsAndCanBeCleared() {
+    EventStore store = new EventStore(Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES), ImmutableSet.of(PERSON_A))));
+    Set<String> changed = new HashSet<>();
+    store.addChangeListener(changed::addAll);
+
+    store.setAvailability(PERSON_A, Availability.workingHours(
+        TimeRange.fromStartEnd(TIME_0800AM, TimeRange.WHOLE_DAY.end(), false)));
+
+    Assert.assertEquals(ImmutableSet.of(PERSON_A), changed);
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartDuration(
+            TimeRange.START_OF_DAY, TIME_0800AM + DURATION_60_MINUTES)),
+        toList(store.getBusyIntervals(PERSON_A)));
+
+    store.setAvailability(PERSON_A, null);
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES)),
+        toList(store.getBusyIntervals(PERSON_A)));
+  }
+
+  @Test
+  public void zeroLengthEventsBlockNoTimeInAnyEngine() {
+    // Events  :       |--A--|  |  <- A, no duration
+    // Day     : |-----------------------|
+    // Options : |--1--|     |-----2-----|
+    List<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES),
+            ImmutableSet.of(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_1000AM, 0),
+            ImmutableSet.of(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(ImmutableSet.of(PERSON_A), DURATION_60_MINUTES);
+    FindMeetingQuery query = new FindMeetingQuery();
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0900AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, query.query(new EventStore(events), request));
+    Assert.assertEquals(expected, query.query(events, request));
+    Assert.assertEquals(expected, query.query(new EventTable(events), request));
+    Assert.assertEquals(expected, query.query(new DayBitmapIndex(events), request));
+  }
+
+  private static Event randomEvent(Random random, int i) {
+    int start = random.nextInt(TimeRange.WHOLE_DAY.duration() - 1);
+    int duration = 1 + random.nextInt(Math.min(120, TimeRange.WHOLE_DAY.duration() - start));
+    ImmutableSet<String> attendees = random.nextBoolean()
+        ? ImmutableSet.of(PERSON_A) : ImmutableSet.of(PERSON_A, PERSON_B);
+    return new Event("Event " + i, TimeRange.fromStartDuration(start, duration), attendees);
+  }
+
+  /** Merges overlapping and touching intervals, which the store keeps merged already. */
+  private static List<TimeRange> merge(IntervalList intervals) {
+    List<TimeRange> merged = new ArrayList<>();
+    for (int i = 0; i < intervals.size(); i++) {
+      int last = merged.size() - 1;
+      if (last >= 0 && intervals.start(i) <= merged.get(last).end()) {
+        int end = Math.max(merged.get(last).end(), intervals.end(i));
+        merged.set(last, TimeRange.fromStartEnd(merged.get(last).start(), end, false));
+      } else {
+        merged.add(TimeRange.fromStartEnd(intervals.start(i), intervals.end(i), false));
+      }
+    }
+    return merged;
+  }
+
+  private static List<TimeRange> toList(IntervalList intervals) {
+    List<TimeRange> ranges = new ArrayList<>();
+    for (int i = 0; i < intervals.size(); i++) {
+      ranges.add(TimeRange.fromStartEnd(intervals.start(i), intervals.end(i), false));
+    }
+    return ranges;
+  }
+}
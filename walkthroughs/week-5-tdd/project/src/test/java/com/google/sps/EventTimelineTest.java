@@ -0,0 +1,76 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class EventTimelineTest {
+  private static final String PERSON_A = "Person A";
+
+  @Test
+  public void getEventsReturnsOnlyOverlappingEventsInStartOrder() {
+    // Events  : |--1--|  |---------2---------|  |--3--|
+    //                       |--4--|
+    // Window  :            |----------|
+    EpochEvent event1 = event("Event 1", 0, 100);
+    EpochEvent event2 = event("Event 2", 150, 1000);
+    EpochEvent event3 = event("Event 3", 1100, 1200);
+    EpochEvent event4 = event("Event 4", 200, 300);
+    EventTimeline timeline = new EventTimeline(Arrays.asList(event3, event1, event4, event2));
+
+    List<EpochEvent> actual = timeline.getEvents(EpochTimeRange.fromStartEnd(100, 600, false));
+
+    Assert.assertEquals(Arrays.asList(event2, event4), actual);
+  }
+
+  @Test
+  public void getEventsMatchesLinearScan() {
+    // Many nested and overlapping events of different lengths, checked against a plain scan.
+    List<EpochEvent> events = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      long start = (i * 37L) % 1000;
+      events.add(event("Event " + i, start, start + (i * 13L) % 200));
+    }
+    EventTimeline timeline = new EventTimeline(events);
+
+    for (long windowStart = 0; windowStart < 1200; windowStart += 50) {
+      EpochTimeRange window = EpochTimeRange.fromStartDuration(windowStart, 75);
+      Collection<EpochEvent> expected = new ArrayList<>();
+      for (EpochEvent event : events) {
+        if (event.getWhen().start() < window.end() && event.getWhen().end() > window.start()) {
+          expected.add(event);
+        }
+      }
+
+      Assert.assertEquals(ImmutableSet.copyOf(expected),
+          ImmutableSet.copyOf(timeline.getEvents(window)));
+    }
+  }
+
+  private static EpochEvent event(String title, long start, long end) {
+    return new EpochEvent(title, EpochTimeRange.fromStartEnd(start, end, false),
+        ImmutableSet.of(PERSON_A));
+  }
+}
@@ -14,13 +14,18 @@
 
 package com.google.sps;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -44,6 +49,7 @@ public final class FindMeetingQueryTest {
   private static final int TIME_0900AM = TimeRange.getTimeInMinutes(9, 0);
   private static final int TIME_0930AM = TimeRange.getTimeInMinutes(9, 30);
   private static final int TIME_1000AM = TimeRange.getTimeInMinutes(10, 0);
+  private static final int TIME_1030AM = TimeRange.getTimeInMinutes(10, 30);
   private static final int TIME_1100AM = TimeRange.getTimeInMinutes(11, 00);
 
   private static final int DURATION_15_MINUTES = 15;
@@ -417,4 +423,444 @@ public final class FindMeetingQueryTest {
     
     Assert.assertEquals(expected, actual);
   }
+
+  @Test
+  public void testQuery_prebuiltIndexAnswersSeveralRequests() {
+    // One index is shared by requests for different attendees. Each request only sees the events
+    // of its own attendees.
+    //
+    // Events  :       |--A--|     |--B--|
+    // Day     : |-----------------------------|
+    // Options : |--A--|     |--------A--------|
+    //           |-----------B-----|     |--B--|
+    EventIndex index = new EventIndex(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            ImmutableSet.of(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            ImmutableSet.of(PERSON_B))));
+
+    Collection<TimeRange> actualA =
+        query.query(index, new MeetingRequest(ImmutableSet.of(PERSON_A), DURATION_30_MINUTES));
+    Collection<TimeRange> actualB =
+        query.query(index, new MeetingRequest(ImmutableSet.of(PERSON_B), DURATION_30_MINUTES));
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0830AM, TimeRange.END_OF_DAY, true)),
+        actualA);
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true)),
+        actualB);
+  }
+
+  @Test
+  public void testQuery_bitmapIndexMatchesEventIndex() {
+    // Overlapping and back to back events for several attendees. Both engines must agree for every
+    // combination of mandatory and optional attendees.
+    //
+    // Events  :       |--A--|
+    //                    |-----B-----|
+    //                                |--C--|
+    // Day     : |-----------------------------------|
+    List<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_60_MINUTES),
+            ImmutableSet.of(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0830AM, DURATION_90_MINUTES),
+            ImmutableSet.of(PERSON_B)),
+        new Event("Event 3", TimeRange.fromStartDuration(TIME_1000AM, DURATION_60_MINUTES),
+            ImmutableSet.of(PERSON_C)),
+        new Event("Event 4", TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY, true),
+            ImmutableSet.of(PERSON_A, PERSON_C)));
+    EventIndex eventIndex = new EventIndex(events);
+    DayBitmapIndex bitmapIndex = new DayBitmapIndex(events);
+
+    List<Set<String>> attendeeSets = Arrays.asList(NO_ATTENDEES, ImmutableSet.of(PERSON_A),
+        ImmutableSet.of(PERSON_A, PERSON_B), ImmutableSet.of(PERSON_B, PERSON_C),
+        ImmutableSet.of(PERSON_A, PERSON_B, PERSON_C));
+    for (Set<String> mandatory : attendeeSets) {
+      for (Set<String> optional : attendeeSets) {
+        for (int duration : Arrays.asList(DURATION_15_MINUTES, DURATION_60_MINUTES, 500)) {
+          MeetingRequest request = new MeetingRequest(mandatory, duration);
+          optional.forEach(request::addOptionalAttendee);
+
+          Assert.assertEquals(
+              query.query(eventIndex, request), query.query(bitmapIndex, request));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testQuery_bitmapIndexEndOfDayMatchesOtherEngines() {
+    // The last 30 minutes of the day are free, but a meeting must finish by END_OF_DAY.
+    //
+    // Events  : |--------------A-----------|
+    // Day     : |------------------------------|
+    // Options :
+    List<Event> events = Arrays.asList(new Event("Event 1",
+        TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TimeRange.WHOLE_DAY.end() - 30, false),
+        ImmutableSet.of(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(ImmutableSet.of(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(new DayBitmapIndex(events), request);
+
+    Assert.assertEquals(Arrays.asList(), actual);
+    Assert.assertEquals(query.query(new EventIndex(events), request), actual);
+  }
+
+  @Test
+  public void testQuery_bitmapIndexWholeDayBusy() {
+    // Events  : |--------------A--------------|
+    // Day     : |-----------------------------|
+    // Options :
+    DayBitmapIndex index = new DayBitmapIndex(Arrays.asList(
+        new Event("Event 1", TimeRange.WHOLE_DAY, ImmutableSet.of(PERSON_A))));
+
+    Collection<TimeRange> actual =
+        query.query(index, new MeetingRequest(ImmutableSet.of(PERSON_A), 1));
+
+    Assert.assertEquals(Arrays.asList(), actual);
+  }
+
+  @Test
+  public void testQueryMaximizingOptionalAttendees_busyOptionalAttendeeDoesNotExcludeOthers() {
+    // Optional person C is busy all day. Person B can still come in every slot that fits A.
+    //
+    // Events  :       |--A--|     |--B--|
+    //           |--------------C--------------|
+    // Day     : |-----------------------------|
+    // Options : |--1--|     |--1--|     |--1--|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            ImmutableSet.of(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES),
+            ImmutableSet.of(PERSON_B)),
+        new Event("Event 3", TimeRange.WHOLE_DAY, ImmutableSet.of(PERSON_C)));
+
+    MeetingRequest request = new MeetingRequest(ImmutableSet.of(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+    request.addOptionalAttendee(PERSON_C);
+
+    List<OptionalAttendeeSlot> actual =
+        query.queryMaximizingOptionalAttendees(new EventIndex(events), request);
+    List<OptionalAttendeeSlot> expected = Arrays.asList(
+        new OptionalAttendeeSlot(
+            TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false), 1),
+        new OptionalAttendeeSlot(TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false), 1),
+        new OptionalAttendeeSlot(
+            TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true), 1));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testQueryMaximizingOptionalAttendees_meetingCannotStraddleOptionalHandover() {
+    // B is busy until 11:00 and C is busy from 11:00, so an hour long meeting can include one of
+    // them on either side of 11:00 but no meeting that crosses 11:00 includes either.
+    //
+    // Events  : |--------B--------|
+    //                             |-----C-----|
+    // Day     : |-----------------------------|
+    // Options : |--------1--------|-----1-----|
+    Collection<Event> events = Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_1100AM, false),
+            ImmutableSet.of(PERSON_B)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY, true),
+            ImmutableSet.of(PERSON_C)));
+
+    MeetingRequest request = new MeetingRequest(NO_ATTENDEES, DURATION_60_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+    request.addOptionalAttendee(PERSON_C);
+
+    List<OptionalAttendeeSlot> actual =
+        query.queryMaximizingOptionalAttendees(new EventIndex(events), request);
+    List<OptionalAttendeeSlot> expected = Arrays.asList(
+        new OptionalAttendeeSlot(
+            TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_1100AM, false), 1),
+        new OptionalAttendeeSlot(
+            TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY, true), 1));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testQuery_multiDayWindow() {
+    // A three day window. A is busy overnight from the first day into the second, and B is busy
+    // on the third day. Events outside the window are ignored.
+    //
+    // Events  :   |-A-|         |-A-|          |--B--|
+    // Window  :         |-day 1-|-day 2-|-day 3-|
+    // Options :         |---1---|   |-----2----|
+    long dayStart = 20000L * 24 * 60;
+    long day = TimeRange.WHOLE_DAY.duration();
+    EpochTimeRange window = EpochTimeRange.fromStartDuration(dayStart, 3 * day);
+    EventTimeline timeline = new EventTimeline(Arrays.asList(
+        new EpochEvent("Before window", EpochTimeRange.fromStartDuration(dayStart - day, 60),
+            ImmutableSet.of(PERSON_A)),
+        new EpochEvent("Overnight", EpochTimeRange.fromStartEnd(dayStart + day - 60,
+            dayStart + day + TIME_0900AM, false), ImmutableSet.of(PERSON_A)),
+        new EpochEvent("Day 3", EpochTimeRange.fromStartEnd(dayStart + 2 * day + TIME_1000AM,
+            dayStart + 4 * day, false), ImmutableSet.of(PERSON_B))));
+
+    MeetingRequest request =
+        new MeetingRequest(ImmutableSet.of(PERSON_A, PERSON_B), DURATION_60_MINUTES);
+    Collection<EpochTimeRange> actual = query.query(timeline, request, window);
+    Collection<EpochTimeRange> expected = Arrays.asList(
+        EpochTimeRange.fromStartEnd(dayStart, dayStart + day - 60, false),
+        EpochTimeRange.fromStartEnd(dayStart + day + TIME_0900AM,
+            dayStart + 2 * day + TIME_1000AM, false));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testQuery_eventTableMatchesEventIndex() {
+    // Every pair of sample attendees, as mandatory and as optional attendees, gets the same answer
+    // from the table scan as from the index.
+    List<Event> events = Arrays.asList(Events.events);
+    EventIndex index = new EventIndex(events);
+    EventTable table = new EventTable(events);
+    List<String> people = new ArrayList<>();
+    for (Event event : events) {
+      for (String attendee : event.getAttendees()) {
+        if (!people.contains(attendee)) {
+          people.add(attendee);
+        }
+      }
+    }
+    people.add("Nobody");
+
+    for (String first : people) {
+      for (String second : people) {
+        MeetingRequest request = new MeetingRequest(ImmutableSet.of(first), DURATION_60_MINUTES);
+        request.addOptionalAttendee(second);
+
+        Assert.assertEquals(query.query(index, request), query.query(table, request));
+      }
+    }
+  }
+
+  @Test
+  public void testQuery_parallelMergeMatchesSequential() {
+    // A large all-hands request over many overlapping, nested and touching events.
+    Random random = new Random(11);
+    List<Event> events = new ArrayList<>();
+    Set<String> everyone = new HashSet<>();
+    for (int i = 0; i < 300; i++) {
+      everyone.add("Person " + i);
+    }
+    for (int i = 0; i < 150; i++) {
+      int start = 5 * random.nextInt(280);
+      events.add(new Event("Event " + i, TimeRange.fromStartDuration(start, 5 * random.nextInt(7)),
+          ImmutableSet.of("Person " + random.nextInt(400))));
+    }
+    EventIndex index = new EventIndex(events);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    FindMeetingQuery parallelQuery = new FindMeetingQuery(pool, /* parallelThreshold= */ 1);
+
+    for (int duration : Arrays.asList(DURATION_15_MINUTES, DURATION_30_MINUTES)) {
+      MeetingRequest request = new MeetingRequest(everyone, duration);
+      Collection<TimeRange> expected = query.query(index, request);
+
+      Assert.assertFalse(expected.isEmpty());
+      Assert.assertEquals(expected, parallelQuery.query(index, request));
+    }
+    pool.shutdown();
+  }
+
+  @Test
+  public void testAvailableSlots_matchesQuery() {
+    // Including requests that fall back to the mandatory attendees, or have no answer at all.
+    List<Event> events = Arrays.asList(Events.events);
+    EventIndex index = new EventIndex(events);
+    Set<String> people = new HashSet<>();
+    for (Event event : events) {
+      people.addAll(event.getAttendees());
+    }
+
+    for (String mandatory : people) {
+      for (String optional : people) {
+        for (int duration : Arrays.asList(DURATION_30_MINUTES, DURATION_2_HOUR, 24 * 60 + 1)) {
+          MeetingRequest request = new MeetingRequest(ImmutableSet.of(mandatory), duration);
+          request.addOptionalAttendee(optional);
+
+          Assert.assertEquals(query.query(index, request),
+              query.availableSlots(index, request).collect(Collectors.toList()));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testAvailableSlots_limitAndNotBefore() {
+    // Slots are asked for from 8:45, so A's first event still blocks until 9:00 and the slot
+    // before it is skipped. Only the first two slots after that are taken.
+    //
+    // Events  :       |--A--|     |--A--|     |--A--|
+    // Day     : |-----------------------------------------|
+    // Options :             |--1--|     |--2--|     |--3--|
+    EventIndex index = new EventIndex(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            ImmutableSet.of(PERSON_A)),
+        new Event("Event 2", TimeRange.fromStartEnd(TIME_0930AM, TIME_1000AM, false),
+            ImmutableSet.of(PERSON_A)),
+        new Event("Event 3", TimeRange.fromStartEnd(TIME_1030AM, TIME_1100AM, false),
+            ImmutableSet.of(PERSON_A))));
+    MeetingRequest request = new MeetingRequest(ImmutableSet.of(PERSON_A), DURATION_30_MINUTES);
+
+    List<TimeRange> actual = query.availableSlots(index, request, TIME_0830AM + 15)
+        .limit(2)
+        .collect(Collectors.toList());
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0900AM, TIME_0930AM, false),
+            TimeRange.fromStartEnd(TIME_1000AM, TIME_1030AM, false));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testAvailableSlots_walksTheStoresListsWithoutRebuildingThem() {
+    // Person A is busy for the first half of every hour, so the day has 24 free half hours.
+    List<Event> events = new ArrayList<>();
+    for (int hour = 0; hour < 24; hour++) {
+      events.add(new Event("Event " + hour,
+          TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(hour, 0), DURATION_30_MINUTES),
+          ImmutableSet.of(PERSON_A)));
+    }
+    EventStore store = new EventStore(events);
+    IntervalList busyIntervals = store.getBusyIntervals(PERSON_A);
+    List<String> reads = new ArrayList<>();
+    BusyCalendar calendar = new BusyCalendar() {
+      @Override
+      public boolean isEmpty() {
+        return store.isEmpty();
+      }
+
+      @Override
+      public IntervalList getBusyIntervals(String attendee) {
+        reads.add(attendee);
+        return store.getBusyIntervals(attendee);
+      }
+    };
+    MeetingRequest request = new MeetingRequest(ImmutableSet.of(PERSON_A), DURATION_30_MINUTES);
+
+    List<TimeRange> actual = query.availableSlots(calendar, request)
+        .limit(1)
+        .collect(Collectors.toList());
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartDuration(DURATION_30_MINUTES, DURATION_30_MINUTES)),
+        actual);
+    Assert.assertEquals(Arrays.asList(PERSON_A), reads);
+    Assert.assertSame(busyIntervals, store.getBusyIntervals(PERSON_A));
+  }
+
+  @Test
+  public void testQueryWithRooms_intersectsFreeTimeWithEachRoom() {
+    // Room 1 is booked in the middle of the free time, room 2 is free all day, and room 3 is too
+    // small for A and B.
+    //
+    // Events  :       |-A-|
+    // Room 1  :                 |-R1-|
+    // Day     : |---------------------------------|
+    // Options : |--R1-|   |-R1--|    |-----R1-----|
+    //           |--R2-|   |---------R2------------|
+    Room room1 = new Room("Room 1", 4);
+    Room room2 = new Room("Room 2", 10);
+    Room room3 = new Room("Room 3", 1);
+    EventIndex people = new EventIndex(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+            ImmutableSet.of(PERSON_A))));
+    EventIndex roomBookings = new EventIndex(Arrays.asList(
+        new Event("Booking 1", TimeRange.fromStartDuration(TIME_1000AM, DURATION_60_MINUTES),
+            ImmutableSet.of(room1.getName(), room3.getName()))));
+    MeetingRequest request =
+        new MeetingRequest(ImmutableSet.of(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    List<RoomSlot> actual = query.queryWithRooms(people, roomBookings,
+        Arrays.asList(room1, room2, room3), request);
+    List<RoomSlot> expected = Arrays.asList(
+        new RoomSlot(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false), room1),
+        new RoomSlot(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false), room2),
+        new RoomSlot(TimeRange.fromStartEnd(TIME_0830AM, TIME_1000AM, false), room1),
+        new RoomSlot(TimeRange.fromStartEnd(TIME_0830AM, TimeRange.END_OF_DAY, true), room2),
+        new RoomSlot(TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY, true), room1));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testQueryWithRooms_endOfDayBoundMatchesAttendees() {
+    // The room is free for the last 30 minutes of the day, but a meeting must finish by
+    // END_OF_DAY.
+    //
+    // Room 1  : |-------------R1------------|
+    // Day     : |------------------------------|
+    // Options :
+    Room room = new Room("Room 1", 1);
+    EventIndex roomBookings = new EventIndex(Arrays.asList(new Event("Booking 1",
+        TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TimeRange.WHOLE_DAY.end() - 30, false),
+        ImmutableSet.of(room.getName()))));
+    MeetingRequest request = new MeetingRequest(ImmutableSet.of(PERSON_A), DURATION_30_MINUTES);
+
+    List<RoomSlot> actual = query.queryWithRooms(new EventIndex(NO_EVENTS), roomBookings,
+        Arrays.asList(room), request);
+
+    Assert.assertEquals(Arrays.asList(), actual);
+  }
+
+  @Test
+  public void testQueryWithRooms_noRoomBigEnough() {
+    Room room = new Room("Room 1", 1);
+    MeetingRequest request =
+        new MeetingRequest(ImmutableSet.of(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    List<RoomSlot> actual = query.queryWithRooms(new EventIndex(NO_EVENTS),
+        new EventIndex(NO_EVENTS), Arrays.asList(room), request);
+
+    Assert.assertEquals(Arrays.asList(), actual);
+  }
+
+  @Test
+  public void testAvailability_outsideWorkingHoursAndBlockedPeriodsIsBusy() {
+    // Person A works from 8:00 to 11:00 but has blocked out 9:00 to 9:30.
+    //
+    // Hours   :       |-------------A-------------|
+    // Blocked :             |-A-|
+    // Events  :                       |-A-|
+    // Day     : |---------------------------------------|
+    // Options :       |-----|   |-----|   |-----|
+    Availability availability = new Availability(
+        TimeRange.fromStartEnd(TIME_0800AM, TIME_1100AM, false),
+        Arrays.asList(TimeRange.fromStartDuration(TIME_0900AM, DURATION_30_MINUTES)));
+    EventIndex index = new EventIndex(Arrays.asList(
+        new Event("Event 1", TimeRange.fromStartDuration(TIME_1000AM, DURATION_30_MINUTES),
+            ImmutableSet.of(PERSON_A))),
+        ImmutableMap.of(PERSON_A, availability));
+    MeetingRequest request = new MeetingRequest(ImmutableSet.of(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(index, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_0930AM, TIME_1000AM, false),
+            TimeRange.fromStartEnd(TIME_1030AM, TIME_1100AM, false));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testAvailability_withoutEventsStillLimitsTheDay() {
+    Availability availability =
+        Availability.workingHours(TimeRange.fromStartEnd(TIME_0800AM, TIME_1100AM, false));
+    EventIndex index = new EventIndex(NO_EVENTS, ImmutableMap.of(PERSON_B, availability));
+    MeetingRequest request =
+        new MeetingRequest(ImmutableSet.of(PERSON_A, PERSON_B), DURATION_60_MINUTES);
+
+    Collection<TimeRange> actual = query.query(index, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_1100AM, false));
+
+    Assert.assertEquals(expected, actual);
+  }
 }
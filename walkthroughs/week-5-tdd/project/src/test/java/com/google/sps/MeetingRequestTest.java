@@ -15,6 +15,7 @@
 package com.google.sps;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.gson.Gson;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -45,4 +46,14 @@ public final class MeetingRequestTest {
     int expected = 0;
     Assert.assertEquals(expected, actual);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void ParsedRequestWithoutOptionalAttendeesHasEmptySet() {
+    String json = "{\"attendees\":[\"Person A\"],\"duration\":60}";
+    MeetingRequest request = new Gson().fromJson(json, MeetingRequest.class);
+
+    Assert.assertEquals(ImmutableSet.of(PERSON_A), request.getAttendees());
+    Assert.assertEquals(ImmutableSet.of(), request.getOptionalAttendees());
+    Assert.assertEquals(DURATION_1_HOUR, request.getDuration());
+  }
+}
@@ -0,0 +1,107 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Arrays;
+import java.util.Collection;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class QueryResultCacheTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int TIME_0800AM = TimeRange.getTimeInMinutes(8, 0);
+  private static final int DURATION_30_MINUTES = 30;
+
+  private EventStore store;
+  private QueryResultCache cache;
+  private FindMeetingQuery query;
+
+  @Before
+  public void setUp() {
+    store = new EventStore();
+    cache = new QueryResultCache(/* capacity= */ 2);
+    store.addChangeListener(cache);
+    query = new FindMeetingQuery();
+  }
+
+  private Collection<TimeRange> cachedQuery(MeetingRequest request) {
+    return cache.get(request, cacheMiss -> query.query(store, cacheMiss));
+  }
+
+  @Test
+  public void sameAttendeesInAnyOrderShareAnEntry() {
+    cachedQuery(new MeetingRequest(ImmutableSet.of(PERSON_A, PERSON_B), DURATION_30_MINUTES));
+    cachedQuery(new MeetingRequest(ImmutableSet.of(PERSON_B, PERSON_A), DURATION_30_MINUTES));
+
+    Assert.assertEquals(1, cache.hitCount());
+    Assert.assertEquals(1, cache.missCount());
+    Assert.assertEquals(0.5, cache.hitRate(), 0);
+  }
+
+  @Test
+  public void changeOnlyInvalidatesRequestsWithThatAttendee() {
+    MeetingRequest requestA = new MeetingRequest(ImmutableSet.of(PERSON_A), DURATION_30_MINUTES);
+    MeetingRequest requestB = new MeetingRequest(ImmutableSet.of(PERSON_B), DURATION_30_MINUTES);
+    cachedQuery(requestA);
+    cachedQuery(requestB);
+
+    store.add(new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+        ImmutableSet.of(PERSON_A)));
+
+    Assert.assertFalse(cache.get(requestA).isPresent());
+    Assert.assertTrue(cache.get(requestB).isPresent());
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_0800AM + DURATION_30_MINUTES, TimeRange.END_OF_DAY, true)),
+        cachedQuery(requestA));
+  }
+
+  @Test
+  public void leastRecentlyUsedEntryIsEvicted() {
+    MeetingRequest requestA = new MeetingRequest(ImmutableSet.of(PERSON_A), DURATION_30_MINUTES);
+    MeetingRequest requestB = new MeetingRequest(ImmutableSet.of(PERSON_B), DURATION_30_MINUTES);
+    MeetingRequest requestC = new MeetingRequest(ImmutableSet.of(PERSON_C), DURATION_30_MINUTES);
+    cachedQuery(requestA);
+    cachedQuery(requestB);
+    cachedQuery(requestA);
+    cachedQuery(requestC);
+
+    Assert.assertEquals(2, cache.size());
+    Assert.assertTrue(cache.get(requestA).isPresent());
+    Assert.assertFalse(cache.get(requestB).isPresent());
+  }
+
+  @Test
+  public void resultComputedBeforeChangeIsNotCached() {
+    MeetingRequest request = new MeetingRequest(ImmutableSet.of(PERSON_A), DURATION_30_MINUTES);
+    long generation = cache.generation();
+    Collection<TimeRange> staleResult = query.query(store, request);
+
+    store.add(new Event("Event 1", TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+        ImmutableSet.of(PERSON_C)));
+    cache.put(generation, request, staleResult);
+
+    Assert.assertFalse(cache.get(request).isPresent());
+  }
+}